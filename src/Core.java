@@ -1,12 +1,20 @@
 import procedures.grapher.Graph;
+import procedures.grapher.MappedGraph;
+import procedures.grapher.VrpInstance;
+import procedures.grapher.VrpReader;
 import procedures.heuristics.Greedy;
+import procedures.heuristics.HybridGeneticSearch;
 import procedures.heuristics.SimulatedAnnealing;
 import procedures.neuralnetwork.*;
+import utilities.CandidateLists;
 import utilities.FloydWarshall;
 import utilities.Utilities;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Core class.
@@ -45,6 +53,25 @@ public class Core {
     /** Flag that enables result logging to file. */
     private static final boolean LOGGING = true;
 
+    /** CVRPLIB instance file that replaces generated graphs, or null to generate them. */
+    private static final String INSTANCE = null;
+
+    /**
+     * Directory where generated graphs are stored as snapshots and loaded from by later
+     * runs, so processes with the same parameters share one page-cached copy, or null
+     * to always generate them.
+     */
+    private static final String GRAPH_SNAPSHOTS = null;
+
+    /** Directory where computed shortest paths are cached, or null to always compute them. */
+    private static final String MATRIX_CACHE = null;
+
+    /** Number of nearest customers that solvers consider first, or 0 to consider all. */
+    private static final int CANDIDATES = 0;
+
+    /** Wall-clock budget of hybrid genetic search in milliseconds, or 0 to skip it. */
+    private static final long HGS_BUDGET = 0;
+
     /** Problem parameters. */
     private static final double CAPACITY = 100;
 
@@ -58,9 +85,27 @@ public class Core {
 
 
         for (int i = 0; i < NUMBER_OF_RUNS; i++) {
-            // Create a random graph.
-            Graph graph = new Graph(SIZE, SPARSENESS, EDGE_LENGTH_MEAN, EDGE_LENGTH_DEVIATION, CAPACITY, ut);
-            graph.setDemand(DEMAND_MEAN, DEMAND_DEVIATION);
+            // Create a random graph or load the instance.
+            Graph graph;
+            VrpInstance instance = null;
+            if (INSTANCE != null) {
+                try {
+                    instance = VrpReader.read(new File(INSTANCE), true, ut);
+                }
+                catch (IOException e) {
+                    throw new RuntimeException("Failed to read instance.", e);
+                }
+                graph = instance.graph();
+            }
+            else if (GRAPH_SNAPSHOTS != null) {
+                graph = snapshotGraph(new File(GRAPH_SNAPSHOTS, SIZE + "_" + SPARSENESS + "_" + i + ".graph"));
+            }
+            else {
+                graph = new Graph(SIZE, SPARSENESS, EDGE_LENGTH_MEAN, EDGE_LENGTH_DEVIATION, CAPACITY, ut);
+                graph.setDemand(DEMAND_MEAN, DEMAND_DEVIATION);
+            }
+            int size = graph.size();
+            double capacity = graph.capacity();
             graph.printGraph();
 
             // Perform RandomWalk algorithm.
@@ -68,47 +113,76 @@ public class Core {
             List<List<Integer>> walks = walker.walk();
 
             // Position encoder.
-            AutoEncoder autoEncoder = new AutoEncoder(SIZE, FEATURES, LEARN_RATE, MIN_LEARN_RATE, DEBUG_MODE);
+            AutoEncoder autoEncoder = new AutoEncoder(size, FEATURES, LEARN_RATE, MIN_LEARN_RATE, DEBUG_MODE);
             autoEncoder.train(EPOCHS, walks);
 
             // 01 encoder.
-            AutoEncoder01 autoEncoder01 = new AutoEncoder01(SIZE, FEATURES, SAMPLE_SIZE, CONTEXT_SIZE, LEARN_RATE, MIN_LEARN_RATE, DEBUG_MODE, ut);
+            AutoEncoder01 autoEncoder01 = new AutoEncoder01(size, FEATURES, SAMPLE_SIZE, CONTEXT_SIZE, LEARN_RATE, MIN_LEARN_RATE, DEBUG_MODE, ut);
             autoEncoder01.train(EPOCHS, walks);
 
             // Compute FloydWarshall matrix.
             FloydWarshall floydWarshall = new FloydWarshall(graph);
-            floydWarshall.calculate();
+            if (instance != null) {
+                floydWarshall.useMatrix(instance.matrix());
+            }
+            else if (MATRIX_CACHE != null) {
+                floydWarshall.calculateCached(new File(MATRIX_CACHE));
+            }
+            else {
+                floydWarshall.calculate();
+            }
+
+            CandidateLists candidates = CANDIDATES > 0 ? CandidateLists.of(floydWarshall.getPaths(), CANDIDATES) : null;
 
             // Compute greedy decoder solution.
-            GreedyDecoder greedyDecoder = new GreedyDecoder(graph, autoEncoder, CAPACITY, floydWarshall);
+            GreedyDecoder greedyDecoder = new GreedyDecoder(graph, autoEncoder, capacity, floydWarshall);
+            greedyDecoder.setCandidates(candidates);
             greedyDecoder.decode();
             greedyDecoder.printSolution();
 
             // Compute a greedy solution.
-            Greedy greedy = new Greedy(graph, floydWarshall, CAPACITY, ut);
+            Greedy greedy = new Greedy(graph, floydWarshall, capacity, ut);
+            greedy.setCandidates(candidates);
             greedy.solve();
             greedy.printSolution();
 
             // Compute a greedy 01 decoding.
-            GreedyDecoder01 greedyDecoder01 = new GreedyDecoder01(graph, autoEncoder01, CAPACITY, floydWarshall);
+            GreedyDecoder01 greedyDecoder01 = new GreedyDecoder01(graph, autoEncoder01, capacity, floydWarshall);
+            greedyDecoder01.setCandidates(candidates);
             greedyDecoder01.decode();
             greedyDecoder01.printSolution();
 
             // Simulated annealing.
-            SimulatedAnnealing simulatedAnnealing = new SimulatedAnnealing(graph, floydWarshall, greedy, CAPACITY, ut);
+            SimulatedAnnealing simulatedAnnealing = new SimulatedAnnealing(graph, floydWarshall, greedy, capacity, ut);
+            simulatedAnnealing.setCandidates(candidates);
             simulatedAnnealing.solve(0.995, 1000);
             simulatedAnnealing.printSolution();
 
+            // Hybrid genetic search, seeded with the greedy and decoded solutions.
+            HybridGeneticSearch hybridGeneticSearch = null;
+            if (HGS_BUDGET > 0) {
+                hybridGeneticSearch = new HybridGeneticSearch(graph, floydWarshall, capacity, i);
+                hybridGeneticSearch.setCandidates(candidates);
+                hybridGeneticSearch.addSeed(greedy.toSolution());
+                hybridGeneticSearch.addSeed(greedyDecoder.toSolution());
+                hybridGeneticSearch.addSeed(greedyDecoder01.toSolution());
+                hybridGeneticSearch.solve(ForkJoinPool.commonPool(), HGS_BUDGET);
+                hybridGeneticSearch.printSolution();
+            }
+
             // Save results to file.
             if (LOGGING) {
                 try {
-                    PrintWriter printWriter = new PrintWriter(SIZE + "_" + SPARSENESS + "_"  + i + ".txt");
-                    printWriter.println(SIZE);
-                    printWriter.println(((double) SPARSENESS) / ((double) SIZE));
+                    PrintWriter printWriter = new PrintWriter(size + "_" + graph.sparseness() + "_"  + i + ".txt");
+                    printWriter.println(size);
+                    printWriter.println(((double) graph.sparseness()) / ((double) size));
                     greedy.log(printWriter);
                     greedyDecoder.log(printWriter);
                     greedyDecoder01.log(printWriter);
                     simulatedAnnealing.log(printWriter);
+                    if (hybridGeneticSearch != null) {
+                        hybridGeneticSearch.log(printWriter);
+                    }
                     printWriter.close();
                 }
                 catch (Exception e) {
@@ -117,4 +191,31 @@ public class Core {
             }
         }
     }
+
+    /**
+     * Maps a graph snapshot, after generating and writing it if the file does not exist.
+     *
+     * The returned graph reads its edges from the mapped file, so processes that map the
+     * same file share it in the page cache.
+     *
+     * @param file The snapshot file.
+     * @return The graph.
+     */
+    private static Graph snapshotGraph(File file) {
+        try {
+            if (!file.isFile()) {
+                Graph generated = new Graph(SIZE, SPARSENESS, EDGE_LENGTH_MEAN, EDGE_LENGTH_DEVIATION, CAPACITY, ut);
+                generated.setDemand(DEMAND_MEAN, DEMAND_DEVIATION);
+                File directory = file.getAbsoluteFile().getParentFile();
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Cannot create " + directory);
+                }
+                MappedGraph.write(generated, file);
+            }
+            return MappedGraph.open(file).toGraph(ut);
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Failed to load graph snapshot.", e);
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package procedures.grapher;
+
+/**
+ * CompressedGraph interface.
+ *
+ * Read-only compressed sparse row graph. Edges leaving node u have indices begin(u)
+ * ... end(u) - 1 and are sorted by target. Implemented by CsrGraph on the heap and by
+ * MappedGraph over a memory-mapped file, so shortest path engines read either without
+ * copying.
+ */
+public interface CompressedGraph {
+
+    /**
+     * Returns number of nodes.
+     *
+     * @return The size.
+     */
+    int size();
+
+    /**
+     * Returns number of directed edges. Every edge of Graph is counted in both directions.
+     *
+     * @return The number.
+     */
+    int edges();
+
+    /**
+     * Returns index of the first edge of a node.
+     *
+     * @param node ID of the node.
+     * @return The index.
+     */
+    int begin(int node);
+
+    /**
+     * Returns index just after the last edge of a node.
+     *
+     * @param node ID of the node.
+     * @return The index.
+     */
+    int end(int node);
+
+    /**
+     * Returns node an edge leads to.
+     *
+     * @param edge Index of the edge.
+     * @return ID of the node.
+     */
+    int target(int edge);
+
+    /**
+     * Returns length of an edge.
+     *
+     * @param edge Index of the edge.
+     * @return The length, positive infinity while the edge is closed.
+     */
+    double weight(int edge);
+
+    /**
+     * Returns demand of a node.
+     *
+     * @param node ID of the node.
+     * @return The demand.
+     */
+    double demand(int node);
+
+    /**
+     * Returns index of the edge between two nodes.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @return The index, or -1 if nodes are not neighbours.
+     */
+    default int edge(int from, int to) {
+        int low = begin(from);
+        int high = end(from) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int target = target(middle);
+            if (target < to) {
+                low = middle + 1;
+            }
+            else if (target > to) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if there is an edge between two nodes.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @return The boolean.
+     */
+    default boolean isNeighbour(int from, int to) {
+        return edge(from, to) != -1;
+    }
+
+    /**
+     * Returns true if every edge u-v has a reverse edge v-u of equal length.
+     *
+     * @return The boolean.
+     */
+    default boolean isSymmetric() {
+        for (int u = 0; u < size(); u++) {
+            for (int e = begin(u); e < end(u); e++) {
+                int reverse = edge(target(e), u);
+                if (reverse == -1 || weight(reverse) != weight(e)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,141 @@
+package procedures.grapher;
+
+import java.util.Arrays;
+
+/**
+ * CsrGraph class.
+ *
+ * Compressed sparse row view of a graph. Edges leaving node u are stored in
+ * targets[offsets[u]] ... targets[offsets[u + 1] - 1] sorted by target, with their
+ * lengths at the same indices of weights. Node demands are kept in one array. The
+ * whole graph takes four arrays instead of a map of nodes that each hold a map of
+ * edge objects.
+ *
+ * The structure of the view never changes. Edge lengths and demands follow changes
+ * made through Graph methods.
+ */
+public final class CsrGraph implements CompressedGraph {
+
+    /** Start of each node's edges, with one extra entry at the end. */
+    private final int[] offsets;
+
+    /** Node each edge leads to. */
+    private final int[] targets;
+
+    /** Length of each edge, positive infinity while it is closed. */
+    private final double[] weights;
+
+    /** Demand of each node. */
+    private final double[] demands;
+
+    /**
+     * CsrGraph constructor.
+     *
+     * Arrays are used as they are, edges of each node must be sorted by target.
+     *
+     * @param offsets Start of each node's edges, with one extra entry at the end.
+     * @param targets Node each edge leads to.
+     * @param weights Length of each edge.
+     * @param demands Demand of each node.
+     */
+    CsrGraph(int[] offsets, int[] targets, double[] weights, double[] demands) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.demands = demands;
+    }
+
+    /**
+     * Builds a view of a graph.
+     *
+     * @param graph Graph object.
+     * @return The view.
+     */
+    static CsrGraph of(Graph graph) {
+        int size = graph.getNodes().size();
+        int[] offsets = new int[size + 1];
+        double[] demands = new double[size];
+        for (Node node : graph.getNodes().values()) {
+            offsets[node.id() + 1] = node.getEdges().size();
+            demands[node.id()] = node.demand();
+        }
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] targets = new int[offsets[size]];
+        double[] weights = new double[offsets[size]];
+        for (Node node : graph.getNodes().values()) {
+            Edge[] edges = node.getEdges().values().toArray(new Edge[0]);
+            Arrays.sort(edges, (a, b) -> Integer.compare(a.to().id(), b.to().id()));
+            int e = offsets[node.id()];
+            for (Edge edge : edges) {
+                targets[e] = edge.to().id();
+                weights[e] = edge.weight();
+                e++;
+            }
+        }
+        return new CsrGraph(offsets, targets, weights, demands);
+    }
+
+    @Override
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    @Override
+    public int edges() {
+        return targets.length;
+    }
+
+    @Override
+    public int begin(int node) {
+        return offsets[node];
+    }
+
+    @Override
+    public int end(int node) {
+        return offsets[node + 1];
+    }
+
+    @Override
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    @Override
+    public double weight(int edge) {
+        return weights[edge];
+    }
+
+    @Override
+    public double demand(int node) {
+        return demands[node];
+    }
+
+    @Override
+    public int edge(int from, int to) {
+        int index = Arrays.binarySearch(targets, offsets[from], offsets[from + 1], to);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Stores new length of edge from-to.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @param weight The length.
+     */
+    void setWeight(int from, int to, double weight) {
+        weights[edge(from, to)] = weight;
+    }
+
+    /**
+     * Stores new demand of a node.
+     *
+     * @param node ID of the node.
+     * @param demand The demand.
+     */
+    void setDemand(int node, double demand) {
+        demands[node] = demand;
+    }
+}
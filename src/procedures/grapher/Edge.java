@@ -16,6 +16,9 @@ public class Edge {
     /** Second node. */
     private final Node to;
 
+    /** True while the edge can not be traversed. */
+    private boolean closed;
+
     /**
      * Edge constructor.
      *
@@ -50,9 +53,36 @@ public class Edge {
     /**
      * Returns length of the edge.
      *
-     * @return Double length.
+     * @return Double length, or positive infinity while the edge is closed.
      */
     public double weight() {
-        return this.weight;
+        return closed ? Double.POSITIVE_INFINITY : this.weight;
+    }
+
+    /**
+     * Stores a new length of the edge.
+     *
+     * @param weight Weight double.
+     */
+    void setWeight(double weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Returns true if the edge can not be traversed.
+     *
+     * @return The boolean.
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Closes or reopens the edge. Length of the edge is kept while it is closed.
+     *
+     * @param closed The boolean.
+     */
+    void setClosed(boolean closed) {
+        this.closed = closed;
     }
 }
@@ -2,6 +2,9 @@ package procedures.grapher;
 
 import utilities.Utilities;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
@@ -21,7 +24,7 @@ public class Graph {
     private final int num_of_nodes;
 
     /** Number of edges in the graph. */
-    private final int num_of_edges;
+    private int num_of_edges;
 
     /** Pointer to depot. */
     private Node depot;
@@ -29,6 +32,12 @@ public class Graph {
     /** Car capacity. */
     private final double CAPACITY;
 
+    /** Compressed sparse row view, built when first needed. */
+    private CompressedGraph csr;
+
+    /** True while edges are only stored in the view and nodes have none yet. */
+    private boolean edges_in_view;
+
     /**
      * Graph constructor.
      *
@@ -91,6 +100,70 @@ public class Graph {
         }
     }
 
+    /**
+     * Graph constructor that creates nodes without edges or demands.
+     *
+     * Edges are then added with connect(), for example by an instance loader.
+     *
+     * @param size Number of Nodes in the graph.
+     * @param car_cap Car capacity.
+     * @param ut Utilities.
+     */
+    public Graph(int size, double car_cap, Utilities ut) {
+        this.nodes = new HashMap<>(size * 2);
+        this.num_of_nodes = size;
+        this.CAPACITY = car_cap;
+        this.ut = ut;
+        for (int i = 0; i < size; i++) {
+            nodes.put(i, new Node(i));
+        }
+        this.depot = nodes.get(0);
+    }
+
+    /**
+     * Graph constructor that builds nodes from a compressed graph, for example one
+     * made by GraphGenerator or a mapped snapshot.
+     *
+     * Edges stay in the compressed graph, which becomes the view of this graph, and
+     * are copied into nodes when an edge is first read or changed through Graph.
+     *
+     * @param csr The compressed graph.
+     * @param car_cap Car capacity.
+     * @param ut Utilities.
+     */
+    public Graph(CompressedGraph csr, double car_cap, Utilities ut) {
+        this.nodes = new HashMap<>(csr.size() * 2);
+        this.num_of_nodes = csr.size();
+        this.num_of_edges = csr.edges() / 2;
+        this.CAPACITY = car_cap;
+        this.ut = ut;
+        for (int i = 0; i < csr.size(); i++) {
+            Node node = new Node(i);
+            node.setDemand(csr.demand(i));
+            nodes.put(i, node);
+        }
+        this.depot = nodes.get(0);
+        this.csr = csr;
+        this.edges_in_view = true;
+    }
+
+    /**
+     * Copies edges of the view into nodes, if they are not there yet.
+     */
+    private void loadEdges() {
+        if (!edges_in_view) {
+            return;
+        }
+        for (int i = 0; i < csr.size(); i++) {
+            Node node = nodes.get(i);
+            for (int e = csr.begin(i); e < csr.end(i); e++) {
+                Node neighbour = nodes.get(csr.target(e));
+                node.addEdge(neighbour, new Edge(node, neighbour, csr.weight(e)));
+            }
+        }
+        edges_in_view = false;
+    }
+
     /**
      * Sets the demand of all non-depot nodes depending on Gaussian distribution parameters.
      *
@@ -99,7 +172,6 @@ public class Graph {
      */
     public void setDemand(double mean, double deviation) {
         for (int i = 1; i < nodes.size(); i++) {
-            Node temp = nodes.get(i);
             double demand = ut.gaussian() * deviation + mean;
             if (demand > CAPACITY) {
                 demand = demand - CAPACITY;
@@ -107,40 +179,232 @@ public class Graph {
             if (demand < 0) {
                 demand = -demand;
             }
-            temp.setDemand(demand);
+            setNodeDemand(i, demand);
+        }
+    }
+
+    /**
+     * Sets the demand of a single node.
+     *
+     * @param id ID of the node.
+     * @param demand The demand.
+     */
+    public void setNodeDemand(int id, double demand) {
+        nodes.get(id).setDemand(demand);
+        if (csr instanceof CsrGraph) {
+            ((CsrGraph) csr).setDemand(id, demand);
+        }
+        else if (csr != null) {
+            loadEdges();
+            csr = null;
+        }
+    }
+
+    /**
+     * Connects two nodes with an edge of given length in both directions.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @param length Length of the edge.
+     */
+    public void connect(int from, int to, double length) {
+        loadEdges();
+        Node first = nodes.get(from);
+        Node second = nodes.get(to);
+        if (from == to || first.isNeighbour(second)) {
+            throw new IllegalArgumentException("Nodes " + from + " and " + to + " cannot be connected.");
+        }
+        first.addEdge(second, new Edge(first, second, length));
+        second.addEdge(first, new Edge(second, first, length));
+        num_of_edges++;
+        csr = null;
+    }
+
+    /**
+     * Returns the edge between two nodes.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @return The edge, or null if nodes are not neighbours.
+     */
+    public Edge edge(int from, int to) {
+        loadEdges();
+        return nodes.get(from).getEdges().get(nodes.get(to));
+    }
+
+    /**
+     * Changes length of the edge between two nodes in both directions.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @param weight New length.
+     */
+    public void setEdgeWeight(int from, int to, double weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Edge length must not be negative.");
+        }
+        existingEdge(from, to).setWeight(weight);
+        existingEdge(to, from).setWeight(weight);
+        updateView(from, to);
+    }
+
+    /**
+     * Closes the edge between two nodes in both directions.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     */
+    public void closeEdge(int from, int to) {
+        existingEdge(from, to).setClosed(true);
+        existingEdge(to, from).setClosed(true);
+        updateView(from, to);
+    }
+
+    /**
+     * Reopens a closed edge between two nodes with the length it had before.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     */
+    public void reopenEdge(int from, int to) {
+        existingEdge(from, to).setClosed(false);
+        existingEdge(to, from).setClosed(false);
+        updateView(from, to);
+    }
+
+    /**
+     * Copies current length of an edge into the compressed view. A view that can only
+     * be read is dropped and built again from nodes when it is next needed.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     */
+    private void updateView(int from, int to) {
+        if (csr instanceof CsrGraph) {
+            double weight = edge(from, to).weight();
+            ((CsrGraph) csr).setWeight(from, to, weight);
+            ((CsrGraph) csr).setWeight(to, from, weight);
+        }
+        else {
+            csr = null;
+        }
+    }
+
+    /**
+     * Returns the compressed sparse row view of the graph.
+     *
+     * The view is built on first call, or is the compressed graph this graph was
+     * built from. Later changes of edges and demands made through Graph methods are
+     * reflected in it.
+     *
+     * @return The view.
+     */
+    public CompressedGraph csr() {
+        if (csr == null) {
+            csr = CsrGraph.of(this);
+        }
+        return csr;
+    }
+
+    /**
+     * Returns the edge between two nodes and fails if there is none.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @return The edge.
+     */
+    private Edge existingEdge(int from, int to) {
+        Edge edge = edge(from, to);
+        if (edge == null) {
+            throw new IllegalArgumentException("There is no edge between " + from + " and " + to + ".");
+        }
+        return edge;
+    }
+
+    /**
+     * Returns a content hash of the graph.
+     *
+     * Two graphs with the same nodes and the same edges of equal length share a
+     * fingerprint, so it can be used as a key of computed shortest paths.
+     *
+     * @return Hexadecimal SHA-256 digest.
+     */
+    public String fingerprint() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+        buffer.putInt(nodes.size()).flip();
+        digest.update(buffer);
+        CompressedGraph view = csr();
+        for (int i = 0; i < nodes.size(); i++) {
+            buffer.clear();
+            buffer.putInt(view.end(i) - view.begin(i)).flip();
+            digest.update(buffer);
+            for (int e = view.begin(i); e < view.end(i); e++) {
+                buffer.clear();
+                buffer.putInt(view.target(e)).putLong(Double.doubleToLongBits(view.weight(e))).flip();
+                digest.update(buffer);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
         }
+        return hex.toString();
     }
 
     /**
      * Prints a formatted text with graph information.
      */
     public void printGraph() {
+        CompressedGraph view = csr();
         for (Node n : nodes.values()) {
             System.out.println("_____________________");
             System.out.printf("NODE %d\n", n.id());
             System.out.printf("DEMAND %.2f\n", n.demand());
-            LinkedList<Integer> edges = new LinkedList<>();
-            for (Edge e : n.getEdges().values()) {
-                edges.add(e.to().id());
-            }
-            Collections.sort(edges);
-            for (int e : edges) {
-                System.out.printf("%d ", e);
+            for (int e = view.begin(n.id()); e < view.end(n.id()); e++) {
+                System.out.printf("%d ", view.target(e));
             }
             System.out.println();
         }
         System.out.println("_____________________");
     }
 
+    /**
+     * Returns car capacity.
+     *
+     * @return The capacity.
+     */
+    public double capacity() {
+        return this.CAPACITY;
+    }
+
     /**
      * Returns a map of nodes.
      *
      * @return The map.
      */
     public HashMap<Integer, Node> getNodes() {
+        loadEdges();
         return this.nodes;
     }
 
+    /**
+     * Returns a node. Unlike getNodes(), this does not copy edges of a compressed
+     * graph into nodes, so solvers that only need node IDs and demands can use it.
+     *
+     * @param id ID of the node.
+     * @return The node.
+     */
+    public Node node(int id) {
+        return nodes.get(id);
+    }
+
     /**
      * Returns the size of the graph. (Number of nodes.)
      *
@@ -0,0 +1,275 @@
+package procedures.grapher;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * GraphGenerator class.
+ *
+ * Generates connected random graphs straight into a CsrGraph in near-linear time.
+ * A random recursive tree over a shuffled node order keeps the graph connected, and
+ * extra edges are sampled as random pairs, deduplicated in an open-addressing hash
+ * set. Sampling and demands are computed in parallel chunks, each with a random
+ * stream derived from the seed, so equal seeds give equal graphs on any number of
+ * threads.
+ */
+public class GraphGenerator {
+
+    /** Number of candidate edges sampled by one parallel chunk. */
+    private static final int CHUNK = 1 << 16;
+
+    /** Seed of all random streams. */
+    private final long seed;
+
+    /**
+     * Constructor for GraphGenerator object.
+     *
+     * @param seed Seed of all random streams.
+     */
+    public GraphGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Generates a graph with the same parameters as the Graph constructor.
+     *
+     * Node 0 is the depot and has no demand.
+     *
+     * @param size Number of Nodes in the graph.
+     * @param sparseness Number of Edges in the graph.
+     * @param mean Edge length mean.
+     * @param deviation Edge length deviation.
+     * @param demand_mean Demand mean.
+     * @param demand_deviation Demand deviation.
+     * @param capacity Car capacity, demands above it are reduced by it.
+     * @return The graph.
+     */
+    public CsrGraph generate(int size, int sparseness, double mean, double deviation,
+                             double demand_mean, double demand_deviation, double capacity) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Graph must have at least one node.");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        long max_edges = (long) size * (size - 1) / 2;
+        int edges = (int) Math.min(max_edges, Math.max(size - 1, (long) sparseness + 1));
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        double[] weights = new double[edges];
+        EdgeSet set = new EdgeSet(edges);
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        for (int i = size - 1; i > 1; i--) {
+            int j = 1 + random.nextInt(i);
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+        int count = 0;
+        for (int i = 1; i < size; i++) {
+            int parent = order[random.nextInt(i)];
+            set.add(order[i], parent);
+            from[count] = order[i];
+            to[count] = parent;
+            weights[count] = length(random, mean, deviation);
+            count++;
+        }
+        while (count < edges) {
+            int missing = edges - count;
+            int chunks = (missing + CHUNK - 1) / CHUNK;
+            long[] seeds = new long[chunks];
+            for (int c = 0; c < chunks; c++) {
+                seeds[c] = random.nextLong();
+            }
+            long[][] candidates = new long[chunks][];
+            double[][] lengths = new double[chunks][];
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                SplittableRandom stream = new SplittableRandom(seeds[c]);
+                int n = Math.min(CHUNK, missing - c * CHUNK);
+                candidates[c] = new long[n];
+                lengths[c] = new double[n];
+                for (int k = 0; k < n; k++) {
+                    int u = stream.nextInt(size);
+                    int v = stream.nextInt(size);
+                    candidates[c][k] = ((long) u << 32) | v;
+                    lengths[c][k] = length(stream, mean, deviation);
+                }
+            });
+            for (int c = 0; c < chunks && count < edges; c++) {
+                for (int k = 0; k < candidates[c].length && count < edges; k++) {
+                    int u = (int) (candidates[c][k] >>> 32);
+                    int v = (int) candidates[c][k];
+                    if (u != v && set.add(u, v)) {
+                        from[count] = u;
+                        to[count] = v;
+                        weights[count] = lengths[c][k];
+                        count++;
+                    }
+                }
+            }
+        }
+        double[] demands = demands(size, random.nextLong(), demand_mean, demand_deviation, capacity);
+        return build(size, from, to, weights, demands);
+    }
+
+    /**
+     * Returns a random edge length.
+     *
+     * @param random Random stream.
+     * @param mean Edge length mean.
+     * @param deviation Edge length deviation.
+     * @return The length.
+     */
+    private static double length(SplittableRandom random, double mean, double deviation) {
+        return Math.abs(gaussian(random) * deviation + mean);
+    }
+
+    /**
+     * Returns a standard normal value using the polar method.
+     *
+     * @param random Random stream.
+     * @return The value.
+     */
+    private static double gaussian(SplittableRandom random) {
+        double x;
+        double y;
+        double s;
+        do {
+            x = 2 * random.nextDouble() - 1;
+            y = 2 * random.nextDouble() - 1;
+            s = x * x + y * y;
+        } while (s >= 1 || s == 0);
+        return x * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    /**
+     * Returns demands of all nodes, the same way as Graph.setDemand().
+     *
+     * @param size Number of nodes.
+     * @param seed Seed of the demand streams.
+     * @param mean Demand mean.
+     * @param deviation Demand deviation.
+     * @param capacity Car capacity.
+     * @return The demands.
+     */
+    private static double[] demands(int size, long seed, double mean, double deviation, double capacity) {
+        double[] demands = new double[size];
+        int chunks = (size + CHUNK - 1) / CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            SplittableRandom stream = new SplittableRandom(seed + c * 0x9E3779B97F4A7C15L);
+            for (int i = Math.max(1, c * CHUNK); i < Math.min(size, (c + 1) * CHUNK); i++) {
+                double demand = gaussian(stream) * deviation + mean;
+                if (demand > capacity) {
+                    demand = demand - capacity;
+                }
+                demands[i] = Math.abs(demand);
+            }
+        });
+        return demands;
+    }
+
+    /**
+     * Builds the compressed graph of undirected edges with two counting sorts, so that
+     * edges of each node end up sorted by target.
+     *
+     * @param size Number of nodes.
+     * @param from First node of each edge.
+     * @param to Second node of each edge.
+     * @param weights Length of each edge.
+     * @param demands Demand of each node.
+     * @return The graph.
+     */
+    private static CsrGraph build(int size, int[] from, int[] to, double[] weights, double[] demands) {
+        int directed = 2 * from.length;
+        int[] by_target = new int[size + 1];
+        for (int e = 0; e < from.length; e++) {
+            by_target[from[e] + 1]++;
+            by_target[to[e] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            by_target[i + 1] += by_target[i];
+        }
+        int[] offsets = Arrays.copyOf(by_target, size + 1);
+        int[] sorted = new int[directed];
+        for (int e = 0; e < from.length; e++) {
+            sorted[by_target[to[e]]++] = 2 * e;
+            sorted[by_target[from[e]]++] = 2 * e + 1;
+        }
+        int[] position = Arrays.copyOf(offsets, size + 1);
+        int[] targets = new int[directed];
+        double[] lengths = new double[directed];
+        for (int k = 0; k < directed; k++) {
+            int e = sorted[k] >>> 1;
+            boolean forward = (sorted[k] & 1) == 0;
+            int source = forward ? from[e] : to[e];
+            int p = position[source]++;
+            targets[p] = forward ? to[e] : from[e];
+            lengths[p] = weights[e];
+        }
+        return new CsrGraph(offsets, targets, lengths, demands);
+    }
+
+    /**
+     * EdgeSet class.
+     *
+     * Open-addressing hash set of undirected node pairs.
+     */
+    private static class EdgeSet {
+
+        /** Marks an empty slot. */
+        private static final long EMPTY = -1;
+
+        /** Slots holding packed pairs. */
+        private final long[] slots;
+
+        /** Mask of slot indices. */
+        private final int mask;
+
+        /**
+         * Constructor for EdgeSet object.
+         *
+         * @param expected Expected number of pairs.
+         */
+        EdgeSet(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            slots = new long[capacity];
+            mask = capacity - 1;
+            Arrays.fill(slots, EMPTY);
+        }
+
+        /**
+         * Adds a pair.
+         *
+         * @param u ID of first node.
+         * @param v ID of second node.
+         * @return False if the pair was already present.
+         */
+        boolean add(int u, int v) {
+            long key = ((long) Math.min(u, v) << 32) | Math.max(u, v);
+            int i = (int) mix(key) & mask;
+            while (slots[i] != EMPTY) {
+                if (slots[i] == key) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            slots[i] = key;
+            return true;
+        }
+
+        /**
+         * Scrambles bits of a key.
+         *
+         * @param key The key.
+         * @return The hash.
+         */
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package procedures.grapher;
+
+import utilities.Utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * MappedGraph class.
+ *
+ * Read-only graph snapshot that lives in a binary file and is read through
+ * memory-mapped buffers, so several solver processes share one page-cached copy and
+ * nothing is copied into per-node objects. Shortest path engines read it like a
+ * CsrGraph, and a Graph built on it with toGraph() keeps its edges in the file until
+ * one of them is changed.
+ *
+ * The depot is always node 0, as in Graph.
+ *
+ * The file holds a 32 byte header (magic, version, number of nodes, depot, number of
+ * directed edges, capacity) followed by offsets, targets, weights and demands of the
+ * compressed graph, all little-endian. Weights start at a multiple of eight bytes.
+ */
+public class MappedGraph implements CompressedGraph {
+
+    /** First four bytes of every graph file. */
+    private static final int MAGIC = 0x48505247;
+
+    /** Version of the file layout. */
+    private static final int VERSION = 1;
+
+    /** Length of the header in bytes. */
+    private static final int HEADER = 32;
+
+    /** ID of the depot. */
+    private final int depot;
+
+    /** Car capacity. */
+    private final double capacity;
+
+    /** Start of each node's edges, with one extra entry at the end. */
+    private final IntBuffer offsets;
+
+    /** Node each edge leads to. */
+    private final IntBuffer targets;
+
+    /** Length of each edge. */
+    private final DoubleBuffer weights;
+
+    /** Demand of each node. */
+    private final DoubleBuffer demands;
+
+    /**
+     * Constructor for MappedGraph object.
+     *
+     * @param depot ID of the depot.
+     * @param capacity Car capacity.
+     * @param offsets Mapped offsets.
+     * @param targets Mapped targets.
+     * @param weights Mapped weights.
+     * @param demands Mapped demands.
+     */
+    private MappedGraph(int depot, double capacity, IntBuffer offsets, IntBuffer targets,
+                        DoubleBuffer weights, DoubleBuffer demands) {
+        this.depot = depot;
+        this.capacity = capacity;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.demands = demands;
+    }
+
+    @Override
+    public int size() {
+        return demands.capacity();
+    }
+
+    @Override
+    public int edges() {
+        return targets.capacity();
+    }
+
+    @Override
+    public int begin(int node) {
+        return offsets.get(node);
+    }
+
+    @Override
+    public int end(int node) {
+        return offsets.get(node + 1);
+    }
+
+    @Override
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    @Override
+    public double weight(int edge) {
+        return weights.get(edge);
+    }
+
+    @Override
+    public double demand(int node) {
+        return demands.get(node);
+    }
+
+    /**
+     * Returns ID of the depot.
+     *
+     * @return The ID.
+     */
+    public int depot() {
+        return this.depot;
+    }
+
+    /**
+     * Returns car capacity.
+     *
+     * @return The capacity.
+     */
+    public double capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Copies the snapshot into a compressed graph on the heap.
+     *
+     * @return The compressed graph.
+     */
+    public CsrGraph toCsr() {
+        int[] o = new int[offsets.capacity()];
+        int[] t = new int[targets.capacity()];
+        double[] w = new double[weights.capacity()];
+        double[] d = new double[demands.capacity()];
+        offsets.get(0, o);
+        targets.get(0, t);
+        weights.get(0, w);
+        demands.get(0, d);
+        return new CsrGraph(o, t, w, d);
+    }
+
+    /**
+     * Returns a Graph that reads its edges from the snapshot. Only nodes and their
+     * demands are created; edges are copied onto the heap when one of them is first
+     * read or changed through the Graph.
+     *
+     * @param ut Utilities of the graph.
+     * @return The graph.
+     */
+    public Graph toGraph(Utilities ut) {
+        return new Graph(this, capacity, ut);
+    }
+
+    /**
+     * Maps a graph file into memory.
+     *
+     * @param file The file.
+     * @return The graph.
+     * @throws IOException If the file can not be read or is not a graph file.
+     */
+    public static MappedGraph open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a graph file: " + file);
+            }
+            int size = header.getInt();
+            int depot = header.getInt();
+            long edges = header.getLong();
+            double capacity = header.getDouble();
+            if (size < 0 || edges < 0 || edges > Integer.MAX_VALUE || edges * Double.BYTES > Integer.MAX_VALUE) {
+                throw new IOException("Unsupported graph size in file: " + file);
+            }
+            if (size > 0 && depot != 0) {
+                throw new IOException("Depot of graph file is not node 0: " + file);
+            }
+            long targets_start = HEADER + (size + 1L) * Integer.BYTES;
+            long weights_start = align(targets_start + edges * Integer.BYTES);
+            long demands_start = weights_start + edges * Double.BYTES;
+            if (channel.size() != demands_start + (long) size * Double.BYTES) {
+                throw new IOException("Graph file is truncated: " + file);
+            }
+            return new MappedGraph(depot, capacity,
+                    map(channel, HEADER, (size + 1L) * Integer.BYTES).asIntBuffer(),
+                    map(channel, targets_start, edges * Integer.BYTES).asIntBuffer(),
+                    map(channel, weights_start, edges * Double.BYTES).asDoubleBuffer(),
+                    map(channel, demands_start, (long) size * Double.BYTES).asDoubleBuffer());
+        }
+    }
+
+    /**
+     * Writes a graph to a file.
+     *
+     * @param graph The graph.
+     * @param file The file.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(Graph graph, File file) throws IOException {
+        write(graph.csr(), graph.depot().id(), graph.capacity(), file);
+    }
+
+    /**
+     * Writes a compressed graph to a file.
+     *
+     * The data is first written to a temporary file that is then moved in place, so
+     * concurrent readers never see a partially written graph.
+     *
+     * @param csr The compressed graph.
+     * @param depot ID of the depot, which must be 0.
+     * @param capacity Car capacity.
+     * @param file The file.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(CompressedGraph csr, int depot, double capacity, File file) throws IOException {
+        if (depot != 0) {
+            throw new IllegalArgumentException("Depot must be node 0.");
+        }
+        int size = csr.size();
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(depot);
+            buffer.putLong(csr.edges()).putDouble(capacity);
+            for (int i = 0; i <= size; i++) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    drain(buffer, channel);
+                }
+                buffer.putInt(i < size ? csr.begin(i) : csr.edges());
+            }
+            for (int e = 0; e < csr.edges(); e++) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    drain(buffer, channel);
+                }
+                buffer.putInt(csr.target(e));
+            }
+            long written = HEADER + (size + 1L + csr.edges()) * Integer.BYTES;
+            for (long p = written; p < align(written); p++) {
+                if (!buffer.hasRemaining()) {
+                    drain(buffer, channel);
+                }
+                buffer.put((byte) 0);
+            }
+            for (int e = 0; e < csr.edges(); e++) {
+                if (buffer.remaining() < Double.BYTES) {
+                    drain(buffer, channel);
+                }
+                buffer.putDouble(csr.weight(e));
+            }
+            for (int i = 0; i < size; i++) {
+                if (buffer.remaining() < Double.BYTES) {
+                    drain(buffer, channel);
+                }
+                buffer.putDouble(csr.demand(i));
+            }
+            drain(buffer, channel);
+        }
+        catch (IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rounds a file position up to a multiple of eight bytes.
+     *
+     * @param position The position.
+     * @return The aligned position.
+     */
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Maps a read-only region of a file.
+     *
+     * @param channel Channel of the file.
+     * @param position Start of the region.
+     * @param length Length of the region in bytes.
+     * @return Little-endian buffer over the region.
+     * @throws IOException If mapping fails.
+     */
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes buffered bytes to the channel and empties the buffer.
+     *
+     * @param buffer The buffer.
+     * @param channel The channel.
+     * @throws IOException If writing fails.
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -19,6 +19,12 @@ public class Node {
     /** Demand. */
     private double demand;
 
+    /** X coordinate, NaN if the node has no position. */
+    private double x = Double.NaN;
+
+    /** Y coordinate, NaN if the node has no position. */
+    private double y = Double.NaN;
+
     /**
      * Node constructor.
      *
@@ -85,6 +91,35 @@ public class Node {
         return this.demand;
     }
 
+    /**
+     * Stores position of the node.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     */
+    public void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Returns x coordinate of the node.
+     *
+     * @return The coordinate, NaN if the node has no position.
+     */
+    public double x() {
+        return this.x;
+    }
+
+    /**
+     * Returns y coordinate of the node.
+     *
+     * @return The coordinate, NaN if the node has no position.
+     */
+    public double y() {
+        return this.y;
+    }
+
     /**
      * Returns a list of neighbours.
      *
@@ -0,0 +1,89 @@
+package procedures.grapher;
+
+import utilities.DistanceMatrix;
+
+/**
+ * VrpInstance class.
+ *
+ * Stores a loaded CVRP instance: a graph with demands and depot, and the distance
+ * matrix between its nodes. The depot is always node 0; other nodes keep the order
+ * of the file.
+ */
+public class VrpInstance {
+
+    /** Name of the instance. */
+    private final String name;
+
+    /** Graph with demands of the nodes. */
+    private final Graph graph;
+
+    /** Distances between all nodes. */
+    private final DistanceMatrix matrix;
+
+    /** ID of the depot in the file. */
+    private final int depot_id;
+
+    /**
+     * Constructor for VrpInstance object.
+     *
+     * @param name Name of the instance.
+     * @param graph Graph with demands of the nodes.
+     * @param matrix Distances between all nodes.
+     * @param depot_id ID of the depot in the file.
+     */
+    VrpInstance(String name, Graph graph, DistanceMatrix matrix, int depot_id) {
+        this.name = name;
+        this.graph = graph;
+        this.matrix = matrix;
+        this.depot_id = depot_id;
+    }
+
+    /**
+     * Returns name of the instance.
+     *
+     * @return The name.
+     */
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * Returns the graph.
+     *
+     * @return The graph.
+     */
+    public Graph graph() {
+        return this.graph;
+    }
+
+    /**
+     * Returns distances between all nodes, to be used with FloydWarshall.useMatrix().
+     *
+     * @return The matrix.
+     */
+    public DistanceMatrix matrix() {
+        return this.matrix;
+    }
+
+    /**
+     * Returns car capacity.
+     *
+     * @return The capacity.
+     */
+    public double capacity() {
+        return graph.capacity();
+    }
+
+    /**
+     * Returns ID that a node has in the file.
+     *
+     * @param node ID of the node in the graph.
+     * @return The ID in the file.
+     */
+    public int fileId(int node) {
+        if (node == 0) {
+            return depot_id;
+        }
+        return node < depot_id ? node : node + 1;
+    }
+}
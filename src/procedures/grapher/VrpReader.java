@@ -0,0 +1,484 @@
+package procedures.grapher;
+
+import utilities.ArrayDistanceMatrix;
+import utilities.DistanceMatrix;
+import utilities.EuclideanDistanceMatrix;
+import utilities.Utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * VrpReader class.
+ *
+ * Loads CVRP instances in TSPLIB / CVRPLIB format. The file is memory-mapped and
+ * scanned byte by byte, numbers are parsed without creating strings, so instances
+ * with tens of thousands of customers load in milliseconds.
+ *
+ * Supported edge weight types are EUC_2D, CEIL_2D, EXACT_2D and EXPLICIT with any of
+ * the symmetric matrix formats. Coordinates are kept as a EuclideanDistanceMatrix
+ * that computes distances on demand; explicit weights are stored in a full matrix
+ * and taken as shortest paths.
+ */
+public class VrpReader {
+
+    /** Powers of ten that are exact as doubles. */
+    private static final double[] POWERS = new double[23];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    /** Mapped file contents. */
+    private final MappedByteBuffer buffer;
+
+    /** Name of the file, used in error messages. */
+    private final String file_name;
+
+    /**
+     * Constructor for VrpReader object.
+     *
+     * @param buffer Mapped file contents.
+     * @param file_name Name of the file.
+     */
+    private VrpReader(MappedByteBuffer buffer, String file_name) {
+        this.buffer = buffer;
+        this.file_name = file_name;
+    }
+
+    /**
+     * Loads an instance.
+     *
+     * @param file The .vrp file.
+     * @param connect If true, every pair of nodes is connected in the graph with their
+     *                distance, which walkers and FloydWarshall.calculate() need. Leave
+     *                false for large instances and use the matrix of the instance.
+     * @param ut Utilities of the graph.
+     * @return The instance.
+     * @throws IOException If the file can not be read or is not a supported instance.
+     */
+    public static VrpInstance read(File file, boolean connect, Utilities ut) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Instance file is too large: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new VrpReader(buffer, file.getName()).parse(connect, ut);
+        }
+    }
+
+    /**
+     * Parses the specification part and all data sections.
+     *
+     * @param connect Whether to connect all pairs of nodes.
+     * @param ut Utilities of the graph.
+     * @return The instance.
+     * @throws IOException If the instance is malformed or not supported.
+     */
+    private VrpInstance parse(boolean connect, Utilities ut) throws IOException {
+        String name = file_name;
+        String weight_type = null;
+        String weight_format = "FULL_MATRIX";
+        int dimension = -1;
+        double capacity = -1;
+        double[] x = null;
+        double[] y = null;
+        double[] demands = null;
+        double[] weights = null;
+        int depot = 1;
+        String key;
+        while ((key = word()) != null) {
+            switch (key) {
+                case "NAME":
+                    name = value();
+                    break;
+                case "TYPE":
+                    String type = value();
+                    if (!type.equals("CVRP") && !type.equals("TSP")) {
+                        throw error("unsupported problem type " + type);
+                    }
+                    break;
+                case "DIMENSION":
+                    dimension = Integer.parseInt(value());
+                    break;
+                case "CAPACITY":
+                    capacity = Double.parseDouble(value());
+                    break;
+                case "EDGE_WEIGHT_TYPE":
+                    weight_type = value();
+                    break;
+                case "EDGE_WEIGHT_FORMAT":
+                    weight_format = value();
+                    break;
+                case "NODE_COORD_SECTION":
+                    requireDimension(dimension);
+                    x = new double[dimension];
+                    y = new double[dimension];
+                    for (int i = 0; i < dimension; i++) {
+                        int id = index(nextInt(), dimension);
+                        x[id] = nextDouble();
+                        y[id] = nextDouble();
+                    }
+                    break;
+                case "DEMAND_SECTION":
+                    requireDimension(dimension);
+                    demands = new double[dimension];
+                    for (int i = 0; i < dimension; i++) {
+                        int id = index(nextInt(), dimension);
+                        demands[id] = nextDouble();
+                    }
+                    break;
+                case "DEPOT_SECTION":
+                    requireDimension(dimension);
+                    depot = index(nextInt(), dimension) + 1;
+                    if (nextInt() != -1) {
+                        throw error("only a single depot is supported");
+                    }
+                    break;
+                case "EDGE_WEIGHT_SECTION":
+                    requireDimension(dimension);
+                    weights = readWeights(dimension, weight_format);
+                    break;
+                case "DISPLAY_DATA_SECTION":
+                    requireDimension(dimension);
+                    for (int i = 0; i < 3 * dimension; i++) {
+                        nextDouble();
+                    }
+                    break;
+                case "EOF":
+                    return build(name, dimension, capacity, weight_type, x, y, demands, weights, depot, connect, ut);
+                default:
+                    value();
+            }
+        }
+        return build(name, dimension, capacity, weight_type, x, y, demands, weights, depot, connect, ut);
+    }
+
+    /**
+     * Builds the instance from parsed sections, moving the depot to node 0.
+     *
+     * @return The instance.
+     * @throws IOException If required data is missing.
+     */
+    private VrpInstance build(String name, int dimension, double capacity, String weight_type,
+                              double[] x, double[] y, double[] demands, double[] weights, int depot,
+                              boolean connect, Utilities ut) throws IOException {
+        requireDimension(dimension);
+        if (weight_type == null) {
+            throw error("missing EDGE_WEIGHT_TYPE");
+        }
+        int[] order = new int[dimension];
+        order[0] = depot - 1;
+        for (int i = 0, k = 1; i < dimension; i++) {
+            if (i != depot - 1) {
+                order[k++] = i;
+            }
+        }
+        DistanceMatrix matrix;
+        if (weight_type.equals("EXPLICIT")) {
+            if (weights == null) {
+                throw error("missing EDGE_WEIGHT_SECTION");
+            }
+            ArrayDistanceMatrix explicit = new ArrayDistanceMatrix(dimension);
+            for (int i = 0; i < dimension; i++) {
+                for (int j = 0; j < dimension; j++) {
+                    explicit.set(i, j, j, i == j ? 0 : weights[order[i] * dimension + order[j]]);
+                }
+            }
+            matrix = explicit;
+        }
+        else {
+            if (x == null) {
+                throw error("missing NODE_COORD_SECTION");
+            }
+            double[] node_x = new double[dimension];
+            double[] node_y = new double[dimension];
+            for (int i = 0; i < dimension; i++) {
+                node_x[i] = x[order[i]];
+                node_y[i] = y[order[i]];
+            }
+            matrix = new EuclideanDistanceMatrix(node_x, node_y, rounding(weight_type));
+        }
+        Graph graph = new Graph(dimension, capacity < 0 ? Double.POSITIVE_INFINITY : capacity, ut);
+        if (matrix instanceof EuclideanDistanceMatrix) {
+            for (int i = 0; i < dimension; i++) {
+                graph.node(i).setPosition(x[order[i]], y[order[i]]);
+            }
+        }
+        if (demands != null) {
+            for (int i = 1; i < dimension; i++) {
+                graph.setNodeDemand(i, demands[order[i]]);
+            }
+        }
+        if (connect) {
+            for (int i = 0; i < dimension; i++) {
+                for (int j = i + 1; j < dimension; j++) {
+                    graph.connect(i, j, matrix.distance(i, j));
+                }
+            }
+        }
+        return new VrpInstance(name, graph, matrix, depot);
+    }
+
+    /**
+     * Returns rounding of an edge weight type with coordinates.
+     *
+     * @param weight_type The edge weight type.
+     * @return The rounding.
+     * @throws IOException If the type is not supported.
+     */
+    private EuclideanDistanceMatrix.Rounding rounding(String weight_type) throws IOException {
+        switch (weight_type) {
+            case "EUC_2D":
+                return EuclideanDistanceMatrix.Rounding.NEAREST;
+            case "CEIL_2D":
+                return EuclideanDistanceMatrix.Rounding.CEIL;
+            case "EXACT_2D":
+                return EuclideanDistanceMatrix.Rounding.EXACT;
+            default:
+                throw error("unsupported edge weight type " + weight_type);
+        }
+    }
+
+    /**
+     * Reads an explicit symmetric matrix into a full row-major array.
+     *
+     * Column-wise formats list the same values as the opposite row-wise ones.
+     *
+     * @param dimension Number of nodes.
+     * @param format The edge weight format.
+     * @return Weights of all pairs.
+     * @throws IOException If the format is not supported.
+     */
+    private double[] readWeights(int dimension, String format) throws IOException {
+        double[] weights = new double[dimension * dimension];
+        boolean lower;
+        boolean diagonal;
+        switch (format) {
+            case "FULL_MATRIX":
+                for (int i = 0; i < weights.length; i++) {
+                    weights[i] = nextDouble();
+                }
+                return weights;
+            case "UPPER_ROW":
+            case "LOWER_COL":
+                lower = false;
+                diagonal = false;
+                break;
+            case "LOWER_ROW":
+            case "UPPER_COL":
+                lower = true;
+                diagonal = false;
+                break;
+            case "UPPER_DIAG_ROW":
+            case "LOWER_DIAG_COL":
+                lower = false;
+                diagonal = true;
+                break;
+            case "LOWER_DIAG_ROW":
+            case "UPPER_DIAG_COL":
+                lower = true;
+                diagonal = true;
+                break;
+            default:
+                throw error("unsupported edge weight format " + format);
+        }
+        for (int i = 0; i < dimension; i++) {
+            int first = lower ? 0 : (diagonal ? i : i + 1);
+            int last = lower ? (diagonal ? i : i - 1) : dimension - 1;
+            for (int j = first; j <= last; j++) {
+                double w = nextDouble();
+                weights[i * dimension + j] = w;
+                weights[j * dimension + i] = w;
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Converts a 1-based ID from the file to an array index.
+     *
+     * @param id The ID.
+     * @param dimension Number of nodes.
+     * @return The index.
+     * @throws IOException If the ID is out of range.
+     */
+    private int index(int id, int dimension) throws IOException {
+        if (id < 1 || id > dimension) {
+            throw error("node " + id + " out of range");
+        }
+        return id - 1;
+    }
+
+    /**
+     * Checks that DIMENSION was given before it is needed.
+     *
+     * @param dimension Parsed dimension.
+     * @throws IOException If it was not.
+     */
+    private void requireDimension(int dimension) throws IOException {
+        if (dimension < 1) {
+            throw error("missing DIMENSION");
+        }
+    }
+
+    /**
+     * Skips whitespace.
+     *
+     * @return False if the end of the file was reached.
+     */
+    private boolean skipBlank() {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get(buffer.position());
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return true;
+            }
+            buffer.position(buffer.position() + 1);
+        }
+        return false;
+    }
+
+    /**
+     * Reads a keyword, which ends at whitespace or a colon.
+     *
+     * @return The keyword, or null at the end of the file.
+     */
+    private String word() {
+        if (!skipBlank()) {
+            return null;
+        }
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get(buffer.position());
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == ':') {
+                break;
+            }
+            buffer.position(buffer.position() + 1);
+        }
+        return text(start, buffer.position());
+    }
+
+    /**
+     * Reads the value of a specification line, the rest of the line after a colon.
+     *
+     * @return The trimmed value.
+     */
+    private String value() {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get(buffer.position());
+            if (b != ' ' && b != '\t' && b != ':') {
+                break;
+            }
+            buffer.position(buffer.position() + 1);
+        }
+        int start = buffer.position();
+        while (buffer.hasRemaining() && buffer.get(buffer.position()) != '\n') {
+            buffer.position(buffer.position() + 1);
+        }
+        return text(start, buffer.position()).trim();
+    }
+
+    /**
+     * Returns bytes of the file as text.
+     *
+     * @param start First byte.
+     * @param end Byte after the last one.
+     * @return The text.
+     */
+    private String text(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parses an integer.
+     *
+     * @return The integer.
+     * @throws IOException If there is no integer.
+     */
+    private int nextInt() throws IOException {
+        double value = nextDouble();
+        if (value != (int) value) {
+            throw error("expected an integer at byte " + buffer.position());
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a decimal number. Numbers with short mantissas and no exponent, which
+     * are all numbers in the standard sets, are converted exactly without strings.
+     *
+     * @return The number.
+     * @throws IOException If there is no number.
+     */
+    private double nextDouble() throws IOException {
+        if (!skipBlank()) {
+            throw error("unexpected end of file");
+        }
+        int start = buffer.position();
+        int p = start;
+        int end = buffer.limit();
+        boolean negative = false;
+        if (buffer.get(p) == '-' || buffer.get(p) == '+') {
+            negative = buffer.get(p) == '-';
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean point = false;
+        boolean simple = true;
+        while (p < end) {
+            byte b = buffer.get(p);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (point) {
+                    decimals++;
+                }
+            }
+            else if (b == '.' && !point) {
+                point = true;
+            }
+            else if (b == 'e' || b == 'E' || b == '-' || b == '+') {
+                simple = false;
+            }
+            else {
+                break;
+            }
+            p++;
+        }
+        buffer.position(p);
+        if (digits == 0) {
+            throw error("expected a number at byte " + start);
+        }
+        if (!simple || digits > 15 || decimals > 22) {
+            try {
+                return Double.parseDouble(text(start, p));
+            }
+            catch (NumberFormatException e) {
+                throw error("malformed number at byte " + start);
+            }
+        }
+        double value = decimals == 0 ? mantissa : mantissa / POWERS[decimals];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns an exception about a malformed file.
+     *
+     * @param message Description of the problem.
+     * @return The exception.
+     */
+    private IOException error(String message) {
+        return new IOException(file_name + ": " + message);
+    }
+}
@@ -0,0 +1,176 @@
+package procedures.heuristics;
+
+import utilities.CandidateLists;
+import utilities.DistanceMatrix;
+import utilities.RouteEvaluator;
+import utilities.Utilities;
+
+import java.util.List;
+
+/**
+ * AnnealingChain class.
+ *
+ * One simulated annealing chain over explicit routes. Moves are evaluated in O(1) by
+ * a RouteEvaluator and the chain remembers its best routes. Each chain owns its
+ * evaluator and random stream, so several chains can run on separate threads.
+ */
+class AnnealingChain {
+
+    /** Routes of the chain. */
+    private final RouteEvaluator routes;
+
+    /** Random stream of the chain. */
+    private final Utilities ut;
+
+    /** Nearest customers of each node, that moves are restricted to, or null. */
+    private final CandidateLists candidates;
+
+    /** Number of graph nodes; stops at or above it are route sentinels. */
+    private final int size;
+
+    /** Best routes found, only up to date while not at_best. */
+    private List<Integer> best_routes;
+
+    /** Cost of the best routes. */
+    private double best_cost;
+
+    /** True while the current routes are the best ones. */
+    private boolean at_best;
+
+    /** Number of performed steps. */
+    private long steps;
+
+    /**
+     * Constructor for AnnealingChain object.
+     *
+     * @param dists Shortest path distances.
+     * @param demands Demand of each node.
+     * @param capacity Capacity of the car.
+     * @param candidates Candidate lists, or null.
+     * @param ut Random stream of the chain.
+     */
+    AnnealingChain(DistanceMatrix dists, double[] demands, double capacity, CandidateLists candidates, Utilities ut) {
+        this.routes = new RouteEvaluator(dists, demands, capacity);
+        this.candidates = candidates;
+        this.ut = ut;
+        this.size = dists.size();
+    }
+
+    /**
+     * Starts the chain from a solution, which also becomes its best one.
+     *
+     * @param solution Permutation of customers, optionally split into routes by zeros.
+     */
+    void start(List<Integer> solution) {
+        routes.load(solution);
+        best_cost = routes.cost();
+        at_best = true;
+    }
+
+    /**
+     * Picks a random move and applies it by the Metropolis criterion.
+     *
+     * A random customer is either swapped with another customer or moved after
+     * another customer or a route start, which may open a new route. Moves that break
+     * capacity are rejected.
+     *
+     * @param temperature Current temperature.
+     */
+    void step(double temperature) {
+        steps++;
+        if (routes.customers() == 0) {
+            return;
+        }
+        int u = routes.customer(ut.randomInt(routes.customers()));
+        int v = target(u);
+        boolean swap = v < size && ut.randomDouble(0, 1) > 0.5;
+        double delta = swap ? routes.swapDelta(u, v) : routes.relocateDelta(u, v);
+        if (delta == Double.POSITIVE_INFINITY) {
+            return;
+        }
+        if (delta < 0 || ut.randomDouble(0, 1) < Math.exp(-delta / temperature)) {
+            if (at_best && delta > 0) {
+                best_routes = routes.routes();
+                at_best = false;
+            }
+            if (swap) {
+                routes.swap(u, v);
+            }
+            else {
+                routes.relocate(u, v);
+            }
+            if (routes.cost() < best_cost) {
+                best_cost = routes.cost();
+                at_best = true;
+            }
+        }
+    }
+
+    /**
+     * Returns a random stop that a customer is moved after or swapped with: one of its
+     * candidates when lists are set, otherwise any customer, or a route start.
+     *
+     * @param u ID of the customer.
+     * @return ID of the stop.
+     */
+    private int target(int u) {
+        if (candidates != null) {
+            int count = candidates.count(u);
+            int i = ut.randomInt(count + 1);
+            if (i < count) {
+                return candidates.get(u, i);
+            }
+            return routes.routeStart(ut.randomInt(routes.starts()));
+        }
+        int i = ut.randomInt(routes.customers() + routes.starts());
+        if (i < routes.customers()) {
+            return routes.customer(i);
+        }
+        return routes.routeStart(i - routes.customers());
+    }
+
+    /**
+     * Returns cost of the current routes.
+     *
+     * @return The cost.
+     */
+    double cost() {
+        return routes.cost();
+    }
+
+    /**
+     * Returns cost of the best routes.
+     *
+     * @return The cost.
+     */
+    double bestCost() {
+        return this.best_cost;
+    }
+
+    /**
+     * Returns the best routes, every route starts and ends at the depot.
+     *
+     * @return The routes.
+     */
+    List<Integer> bestRoutes() {
+        return at_best ? routes.routes() : best_routes;
+    }
+
+    /**
+     * Returns customers of the current routes in order.
+     *
+     * @return The permutation.
+     */
+    List<Integer> permutation() {
+        return routes.permutation();
+    }
+
+    /**
+     * Returns number of performed steps.
+     *
+     * @return The number.
+     */
+    long steps() {
+        return this.steps;
+    }
+}
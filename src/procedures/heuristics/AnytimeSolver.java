@@ -0,0 +1,202 @@
+package procedures.heuristics;
+
+import procedures.grapher.Graph;
+import utilities.CandidateLists;
+import utilities.FloydWarshall;
+import utilities.LatencyHistogram;
+import utilities.Utilities;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * AnytimeSolver class.
+ *
+ * Builds a greedy solution and improves it until a wall-clock or evaluation budget is
+ * spent or the run is cancelled. The incumbent solution can be read from any thread
+ * at any moment. Progress is reported to a listener at most once per interval, and
+ * cancellation is cooperative: the run stops at its next check, within a few hundred
+ * move evaluations. Time to the first feasible solution and time to the final best
+ * one are collected in latency histograms over all runs.
+ */
+public class AnytimeSolver {
+
+    /** Number of move evaluations between two checks of budget and cancellation. */
+    private static final int CHECK_INTERVAL = 256;
+
+    /** Pointer to graph object. */
+    private final Graph graph;
+
+    /** Pointer to FloydWarshall object. */
+    private final FloydWarshall floydWarshall;
+
+    /** Capacity of the car. */
+    private final double CAPACITY;
+
+    /** Improvement method applied to the greedy solution. */
+    private final Improvement improvement;
+
+    /** Utilities. */
+    private final Utilities ut;
+
+    /** Nearest customers of each node for the greedy construction, or null. */
+    private CandidateLists candidates;
+
+    /** Listener of new incumbents, or null. */
+    private Consumer<Incumbent> listener;
+
+    /** Minimum time between two calls of the listener in nanoseconds. */
+    private long listener_interval;
+
+    /** Best solution of the current or last run, null before the first one is built. */
+    private volatile Incumbent incumbent;
+
+    /** Set by cancel(), cleared when a run starts. */
+    private volatile boolean cancelled;
+
+    /** Time to the first feasible solution of every run. */
+    private final LatencyHistogram first_feasible = new LatencyHistogram();
+
+    /** Time to the final best solution of every run. */
+    private final LatencyHistogram to_best = new LatencyHistogram();
+
+    /**
+     * Constructor for AnytimeSolver object.
+     *
+     * @param graph Graph object.
+     * @param fw FloydWarshall object.
+     * @param capacity Capacity of the car.
+     * @param improvement Improvement method, for example SimulatedAnnealing.improvement().
+     * @param ut Utilities.
+     */
+    public AnytimeSolver(Graph graph, FloydWarshall fw, double capacity, Improvement improvement, Utilities ut) {
+        this.graph = graph;
+        this.floydWarshall = fw;
+        this.CAPACITY = capacity;
+        this.improvement = improvement;
+        this.ut = ut;
+    }
+
+    /**
+     * Sets candidate lists used by the greedy construction.
+     *
+     * @param candidates The lists, or null.
+     */
+    public void setCandidates(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Sets a listener that is called on the solving thread with new incumbents, at most
+     * once per interval. The final incumbent is always reported.
+     *
+     * @param listener The listener, or null.
+     * @param interval_millis Minimum time between two calls in milliseconds.
+     */
+    public void setProgressListener(Consumer<Incumbent> listener, long interval_millis) {
+        this.listener = listener;
+        this.listener_interval = interval_millis * 1_000_000L;
+    }
+
+    /**
+     * Solves the problem within a budget.
+     *
+     * @param time_millis Wall-clock budget in milliseconds.
+     * @param max_evaluations Maximum number of move evaluations, or Long.MAX_VALUE.
+     * @return The best solution found.
+     */
+    public Incumbent solve(long time_millis, long max_evaluations) {
+        cancelled = false;
+        incumbent = null;
+        long begin = System.nanoTime();
+        long budget = time_millis * 1_000_000L;
+        Greedy greedy = new Greedy(graph, floydWarshall, CAPACITY, ut);
+        greedy.setCandidates(candidates);
+        greedy.solve();
+        improvement.start(greedy.getSolution());
+        long now = System.nanoTime();
+        incumbent = new Incumbent(improvement.bestCost(), improvement.bestRoutes(), now - begin, 0);
+        first_feasible.record(now - begin);
+        long last_report = now;
+        boolean reported = report(incumbent);
+        long evaluations = 0;
+        while (!cancelled && now - begin < budget && evaluations < max_evaluations) {
+            double progress = (double) (now - begin) / budget;
+            long steps = Math.min(CHECK_INTERVAL, max_evaluations - evaluations);
+            for (long i = 0; i < steps; i++) {
+                improvement.step(progress);
+            }
+            evaluations += steps;
+            now = System.nanoTime();
+            if (improvement.bestCost() < incumbent.cost()) {
+                incumbent = new Incumbent(improvement.bestCost(), improvement.bestRoutes(), now - begin, evaluations);
+                reported = false;
+            }
+            if (!reported && now - last_report >= listener_interval) {
+                reported = report(incumbent);
+                last_report = now;
+            }
+        }
+        if (!reported) {
+            report(incumbent);
+        }
+        to_best.record(incumbent.elapsedNanos());
+        return incumbent;
+    }
+
+    /**
+     * Calls the listener, if any.
+     *
+     * @param solution The incumbent.
+     * @return True.
+     */
+    private boolean report(Incumbent solution) {
+        if (listener != null) {
+            listener.accept(solution);
+        }
+        return true;
+    }
+
+    /**
+     * Asks the current run to stop. It returns its incumbent at the next check.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns the best solution of the current or last run.
+     *
+     * @return The incumbent, or null before the first solution is built.
+     */
+    public Incumbent incumbent() {
+        return this.incumbent;
+    }
+
+    /**
+     * Returns the final path of the incumbent.
+     *
+     * @return The path.
+     */
+    public List<Integer> path() {
+        return floydWarshall.finalizePath(incumbent.routes());
+    }
+
+    /**
+     * Returns histogram of times to the first feasible solution of all runs.
+     *
+     * @return The histogram.
+     */
+    public LatencyHistogram firstFeasible() {
+        return this.first_feasible;
+    }
+
+    /**
+     * Returns histogram of times to the final best solution of all runs.
+     *
+     * @return The histogram.
+     */
+    public LatencyHistogram toBest() {
+        return this.to_best;
+    }
+}
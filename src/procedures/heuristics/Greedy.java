@@ -2,7 +2,12 @@ package procedures.heuristics;
 
 import procedures.grapher.Graph;
 import procedures.grapher.Node;
+import utilities.CandidateLists;
+import utilities.DistanceMatrix;
+import utilities.EuclideanDistanceMatrix;
 import utilities.FloydWarshall;
+import utilities.KdTree;
+import utilities.Solution;
 import utilities.Utilities;
 
 import java.io.PrintWriter;
@@ -43,6 +48,18 @@ public class Greedy {
     /** Utilities. */
     private final Utilities ut;
 
+    /** Spatial index over Euclidean distances, null for graph distances. */
+    private KdTree index;
+
+    /** Array of demands whose values are the keys of the index. */
+    private double[] indexed;
+
+    /** Number of nodes with a non-zero demand in the indexed array. */
+    private int remaining;
+
+    /** Nearest customers of each node, searched before all nodes, or null. */
+    private CandidateLists candidates;
+
     /**
      * Constructor for class Greedy.
      *
@@ -60,10 +77,22 @@ public class Greedy {
         this.total_distance = 0;
         cleanliness = new double[graph.size()];
         for (int i = 0; i < graph.size(); i++) {
-            cleanliness[i] = graph.getNodes().get(i).demand();
+            cleanliness[i] = graph.csr().demand(i);
         }
     }
 
+    /**
+     * Sets candidate lists. The nearest feasible candidate of the current node is
+     * taken without looking at other nodes, and all nodes are only searched when no
+     * candidate fits. Solutions do not change, since a list holds the nearest
+     * customers in order.
+     *
+     * @param candidates The lists, or null to search all nodes.
+     */
+    public void setCandidates(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
     /**
      * Function that greedily solves the CVRP.
      */
@@ -71,11 +100,12 @@ public class Greedy {
         Node current = graph.depot();
         solution.add(graph.depot().id());
         weight = 0;
-        while(notClean()) {
+        index(cleanliness);
+        while(index != null ? remaining > 0 : notClean()) {
             Node next = getNext(current);
             if (next.id() != 0) {
                 weight += cleanliness[next.id()];
-                cleanliness[next.id()] = 0;
+                serve(cleanliness, next.id());
             }
             else {
                 weight = 0;
@@ -96,15 +126,16 @@ public class Greedy {
      * @return Solution to a partial CVRP.
      */
     public List<Integer> solve(double[] partial, int curr, double w) {
-        Node current = graph.getNodes().get(curr);
+        Node current = graph.node(curr);
         List<Integer> partial_solution = new LinkedList<>();
         partial_solution.add(curr);
         weight = w;
+        index(partial);
         while(notClean()) {
             Node next = getNext(current, partial);
             if (next.id() != 0) {
                 weight += partial[next.id()];
-                partial[next.id()] = 0;
+                serve(partial, next.id());
             }
             else {
                 weight = 0;
@@ -119,6 +150,50 @@ public class Greedy {
         return partial_solution;
     }
 
+    /**
+     * Builds keys of the spatial index from an array of demands, if distances are
+     * Euclidean. Nearest feasible nodes are then found in logarithmic expected time
+     * instead of scanning all nodes.
+     *
+     * @param demands State of demands.
+     */
+    private void index(double[] demands) {
+        DistanceMatrix paths = floydWarshall.getPaths();
+        if (!(paths instanceof EuclideanDistanceMatrix)) {
+            index = null;
+            return;
+        }
+        if (index == null) {
+            index = new KdTree((EuclideanDistanceMatrix) paths);
+        }
+        double[] keys = new double[demands.length];
+        remaining = 0;
+        for (int i = 0; i < demands.length; i++) {
+            keys[i] = i != 0 && demands[i] > 0 ? demands[i] : Double.POSITIVE_INFINITY;
+            if (demands[i] != 0) {
+                remaining++;
+            }
+        }
+        index.setKeys(keys);
+        indexed = demands;
+    }
+
+    /**
+     * Clears demand of a served node.
+     *
+     * @param demands State of demands.
+     * @param node ID of the node.
+     */
+    private void serve(double[] demands, int node) {
+        if (index != null && demands == indexed) {
+            if (demands[node] != 0) {
+                remaining--;
+            }
+            index.setKey(node, Double.POSITIVE_INFINITY);
+        }
+        demands[node] = 0;
+    }
+
     /**
      * Returns boolean indicating whether all demands have been met.
      *
@@ -151,10 +226,26 @@ public class Greedy {
      * @return Next node selected greedily.
      */
     private Node getNode(Node current, double[] cleanliness) {
+        if (candidates != null) {
+            for (int i = 0; i < candidates.k(); i++) {
+                int candidate = candidates.get(current.id(), i);
+                if (candidate == -1) {
+                    break;
+                }
+                if (weight + cleanliness[candidate] <= CAPACITY && cleanliness[candidate] > 0) {
+                    return graph.node(candidate);
+                }
+            }
+        }
+        if (index != null && cleanliness == indexed) {
+            int next = index.nearestFitting(current.id(), weight, CAPACITY);
+            return next == -1 ? graph.depot() : graph.node(next);
+        }
         double min = Double.MAX_VALUE;
         int next = -1;
+        DistanceMatrix paths = floydWarshall.getPaths();
         for (int i = 0; i < graph.size(); i++) {
-            double dist = floydWarshall.getPaths()[current.id()][i].getDistance();
+            double dist = paths.distance(current.id(), i);
             if (dist < min && i != current.id() && i != 0 && weight + cleanliness[i] <= CAPACITY && cleanliness[i] > 0) {
                 min = dist;
                 next = i;
@@ -163,7 +254,7 @@ public class Greedy {
         if (next == -1) {
             return graph.depot();
         }
-        return graph.getNodes().get(next);
+        return graph.node(next);
     }
 
     /**
@@ -205,6 +296,17 @@ public class Greedy {
         return filtered;
     }
 
+    /**
+     * Returns routes of the last solve as a Solution, before shortest paths are
+     * expanded. Customers are in the order the printed path serves them, see
+     * FloydWarshall.servedRoutes().
+     *
+     * @return The solution.
+     */
+    public Solution toSolution() {
+        return Solution.of(graph, floydWarshall.getPaths(), CAPACITY, floydWarshall.servedRoutes(permutation, CAPACITY));
+    }
+
     public void log(PrintWriter printer) {
         printer.printf("1,%.4f\n", total_distance);
     }
@@ -0,0 +1,528 @@
+package procedures.heuristics;
+
+import procedures.grapher.Graph;
+import procedures.heuristics.localsearch.LocalSearch;
+import utilities.CandidateLists;
+import utilities.FloydWarshall;
+import utilities.IntList;
+import utilities.Solution;
+import utilities.Split;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * HybridGeneticSearch class.
+ *
+ * Genetic algorithm with local search in the style of Vidal's HGS. Chromosomes are
+ * giant tours. Each offspring is made by order crossover of two parents picked by
+ * binary tournaments, cut into routes by Split and educated by LocalSearch, whose
+ * routes become its chromosome again. The population is ranked by a biased fitness
+ * that adds the rank of cost and the rank of average broken-pairs distance to the
+ * closest individuals, so similar solutions are removed before distinct ones of
+ * similar cost. After a number of offspring without improvement the population is
+ * rebuilt from new random tours, and only the best solution found is remembered.
+ *
+ * Offspring are made in batches, one per pool thread, each by a worker with its own
+ * Split, LocalSearch and random stream. Only the population update between batches
+ * is sequential. All individuals are feasible, since Split never exceeds the
+ * capacity.
+ */
+public class HybridGeneticSearch {
+
+    /** Number of individuals that survive a selection. */
+    private static final int POPULATION = 25;
+
+    /** Number of offspring added before a selection. */
+    private static final int GENERATION = 40;
+
+    /** Number of best individuals whose fitness is mostly their cost. */
+    private static final int ELITE = 4;
+
+    /** Number of closest individuals averaged for diversity. */
+    private static final int CLOSEST = 5;
+
+    /** Number of offspring without improvement after which the population is rebuilt. */
+    private static final int RESTART = 20000;
+
+    /** The first population takes at most 1 / INITIAL_SHARE of the budget. */
+    private static final int INITIAL_SHARE = 10;
+
+    /** Candidate list length used when none are set. */
+    private static final int DEFAULT_CANDIDATES = 20;
+
+    /** Pointer to graph object. */
+    private final Graph graph;
+
+    /** Pointer to FloydWarshall object. */
+    private final FloydWarshall floydWarshall;
+
+    /** Capacity of the car. */
+    private final double CAPACITY;
+
+    /** Seed of the random streams. */
+    private final long seed;
+
+    /** Nearest customers of each node, that education is restricted to. */
+    private CandidateLists candidates;
+
+    /** Solutions added to the first population. */
+    private final List<List<Integer>> seeds = new ArrayList<>();
+
+    /** Current population. */
+    private final List<Individual> population = new ArrayList<>();
+
+    /** Best individual found. */
+    private Individual best;
+
+    /** Number of offspring made in the last run. */
+    private long offspring;
+
+    /** Number of times the population was rebuilt in the last run. */
+    private int restarts;
+
+    /** Final path of the best solution. */
+    private List<Integer> best_solution;
+
+    /** Distance of the final path. */
+    private double final_distance;
+
+    /**
+     * Constructor for HybridGeneticSearch object.
+     *
+     * @param graph Graph object.
+     * @param fw FloydWarshall object with computed distances.
+     * @param capacity Capacity of the car.
+     * @param seed Seed of the random streams.
+     */
+    public HybridGeneticSearch(Graph graph, FloydWarshall fw, double capacity, long seed) {
+        this.graph = graph;
+        this.floydWarshall = fw;
+        this.CAPACITY = capacity;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets candidate lists that education is restricted to.
+     *
+     * @param candidates The lists, or null for the 20 nearest customers.
+     */
+    public void setCandidates(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Adds a solution to the first population, for example one of Greedy or of a
+     * decoder. It is educated like every other individual.
+     *
+     * @param solution The solution, serving every customer with demand exactly once.
+     */
+    public void addSeed(Solution solution) {
+        List<Integer> routes = solution.toList();
+        boolean[] served = new boolean[graph.size()];
+        int count = 0;
+        for (int node : routes) {
+            if (node == 0) {
+                continue;
+            }
+            if (node >= served.length || served[node] || graph.csr().demand(node) <= 0) {
+                throw new IllegalArgumentException("Seed visits node " + node + " that is not a customer or visits it twice.");
+            }
+            served[node] = true;
+            count++;
+        }
+        for (int i = 1; i < served.length; i++) {
+            if (graph.csr().demand(i) > 0) {
+                count--;
+            }
+        }
+        if (count != 0) {
+            throw new IllegalArgumentException("Seed does not serve every customer.");
+        }
+        seeds.add(routes);
+    }
+
+    /**
+     * Evolves the population until the budget is spent.
+     *
+     * @param pool Pool that makes offspring, one per thread at a time.
+     * @param budget_millis Wall-clock budget in milliseconds.
+     */
+    public void solve(ForkJoinPool pool, long budget_millis) {
+        long begin = System.nanoTime();
+        long deadline = begin + budget_millis * 1_000_000L;
+        long initial_deadline = begin + budget_millis * 1_000_000L / INITIAL_SHARE;
+        if (candidates == null) {
+            candidates = CandidateLists.of(floydWarshall.getPaths(), DEFAULT_CANDIDATES);
+        }
+        double[] demands = new double[graph.size()];
+        IntList customers = new IntList();
+        for (int i = 0; i < demands.length; i++) {
+            demands[i] = graph.csr().demand(i);
+            if (i != 0 && demands[i] > 0) {
+                customers.add(i);
+            }
+        }
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(demands, deadline));
+        SplittableRandom random = new SplittableRandom(seed);
+        int batch = Math.max(1, pool.getParallelism());
+        population.clear();
+        best = null;
+        offspring = 0;
+        restarts = 0;
+
+        List<Callable<Individual>> tasks = new ArrayList<>();
+        for (List<Integer> start : seeds) {
+            tasks.add(() -> workers.get().educate(start));
+        }
+        run(pool, tasks);
+        long since_improvement = 0;
+        initialize(pool, workers, random, customers, initial_deadline);
+        while (System.nanoTime() < deadline) {
+            if (since_improvement >= RESTART) {
+                for (Individual individual : new ArrayList<>(population)) {
+                    remove(individual);
+                }
+                restarts++;
+                since_improvement = 0;
+                initialize(pool, workers, random, customers, Math.min(deadline, System.nanoTime() + budget_millis * 1_000_000L / INITIAL_SHARE));
+                continue;
+            }
+            updateFitness();
+            Individual[] parents = population.toArray(new Individual[0]);
+            tasks.clear();
+            for (int t = 0; t < batch; t++) {
+                SplittableRandom task_random = random.split();
+                tasks.add(() -> {
+                    Individual first = tournament(parents, task_random);
+                    Individual second = tournament(parents, task_random);
+                    return workers.get().crossover(first, second, task_random);
+                });
+            }
+            double before = best.cost;
+            run(pool, tasks);
+            offspring += batch;
+            since_improvement = best.cost < before ? 0 : since_improvement + batch;
+        }
+        best_solution = floydWarshall.finalizePath(best.routes());
+        final_distance = floydWarshall.distance();
+    }
+
+    /**
+     * Fills the population with educated random giant tours, four times its size or
+     * until the deadline, but at least one batch if the population is empty.
+     *
+     * @param pool Pool that educates the tours.
+     * @param workers Workers of the pool threads.
+     * @param random Random stream of the search.
+     * @param customers All customers.
+     * @param deadline Value of System.nanoTime() after which no batch is started.
+     */
+    private void initialize(ForkJoinPool pool, ThreadLocal<Worker> workers, SplittableRandom random, IntList customers, long deadline) {
+        int batch = Math.max(1, pool.getParallelism());
+        for (int made = 0; made < 4 * POPULATION && (population.isEmpty() || System.nanoTime() < deadline); made += batch) {
+            List<Callable<Individual>> tasks = new ArrayList<>();
+            for (int t = 0; t < batch; t++) {
+                SplittableRandom task_random = random.split();
+                tasks.add(() -> {
+                    int[] tour = customers.toArray();
+                    for (int i = tour.length - 1; i > 0; i--) {
+                        int j = task_random.nextInt(i + 1);
+                        int swap = tour[i];
+                        tour[i] = tour[j];
+                        tour[j] = swap;
+                    }
+                    return workers.get().educate(tour);
+                });
+            }
+            run(pool, tasks);
+        }
+    }
+
+    /**
+     * Runs tasks on the pool and adds the individuals they make to the population.
+     *
+     * @param pool The pool.
+     * @param tasks Tasks that each make one individual.
+     */
+    private void run(ForkJoinPool pool, List<Callable<Individual>> tasks) {
+        List<Future<Individual>> futures = pool.invokeAll(tasks);
+        for (Future<Individual> future : futures) {
+            try {
+                add(future.get());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while evolving.", e);
+            }
+            catch (ExecutionException e) {
+                throw new RuntimeException("Making an offspring failed.", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Adds an individual to the population, and selects survivors when the
+     * generation is complete.
+     *
+     * @param individual The individual.
+     */
+    private void add(Individual individual) {
+        if (best == null || individual.cost < best.cost) {
+            best = individual;
+        }
+        for (Individual other : population) {
+            individual.link(other);
+        }
+        population.add(individual);
+        if (population.size() >= POPULATION + GENERATION) {
+            while (population.size() > POPULATION) {
+                removeWorst();
+            }
+        }
+    }
+
+    /**
+     * Removes a clone if there is one, otherwise the individual with the worst biased
+     * fitness.
+     */
+    private void removeWorst() {
+        updateFitness();
+        Individual worst = null;
+        boolean worst_clone = false;
+        for (Individual individual : population) {
+            boolean clone = individual.isClone();
+            if (worst == null || clone && !worst_clone || clone == worst_clone && individual.biased_fitness > worst.biased_fitness) {
+                worst = individual;
+                worst_clone = clone;
+            }
+        }
+        remove(worst);
+    }
+
+    /**
+     * Removes an individual from the population.
+     *
+     * @param individual The individual.
+     */
+    private void remove(Individual individual) {
+        population.remove(individual);
+        for (Individual other : population) {
+            individual.unlink(other);
+        }
+    }
+
+    /**
+     * Computes biased fitness of the population: rank of cost plus rank of diversity,
+     * weighted so that the elite keep their place.
+     */
+    private void updateFitness() {
+        int n = population.size();
+        if (n == 1) {
+            population.get(0).biased_fitness = 0;
+            return;
+        }
+        List<Individual> by_cost = new ArrayList<>(population);
+        by_cost.sort((a, b) -> Double.compare(a.cost, b.cost));
+        double[] diversity = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            diversity[i] = by_cost.get(i).averageDistance(CLOSEST);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(diversity[b], diversity[a]));
+        double weight = 1 - Math.min(1.0, (double) ELITE / n);
+        for (int rank = 0; rank < n; rank++) {
+            Individual individual = by_cost.get(order[rank]);
+            individual.biased_fitness = (double) order[rank] / (n - 1) + weight * rank / (n - 1);
+        }
+    }
+
+    /**
+     * Picks the better of two random individuals by biased fitness.
+     *
+     * @param parents The population.
+     * @param random Random stream.
+     * @return The individual.
+     */
+    private static Individual tournament(Individual[] parents, SplittableRandom random) {
+        Individual a = parents[random.nextInt(parents.length)];
+        Individual b = parents[random.nextInt(parents.length)];
+        return a.biased_fitness <= b.biased_fitness ? a : b;
+    }
+
+    /**
+     * Returns number of offspring made in the last run.
+     *
+     * @return The number.
+     */
+    public long offspring() {
+        return this.offspring;
+    }
+
+    /**
+     * Returns number of times the population was rebuilt in the last run.
+     *
+     * @return The number.
+     */
+    public int restarts() {
+        return this.restarts;
+    }
+
+    /**
+     * Returns the best routes, before shortest paths are expanded.
+     *
+     * @return The solution.
+     */
+    public Solution toSolution() {
+        return Solution.of(graph, floydWarshall.getPaths(), CAPACITY, best.routes());
+    }
+
+    /**
+     * Returns the final path of the best solution.
+     *
+     * @return The path.
+     */
+    public List<Integer> getSolution() {
+        return this.best_solution;
+    }
+
+    /**
+     * Returns distance of the best solution.
+     *
+     * @return The distance.
+     */
+    public double distance() {
+        return this.final_distance;
+    }
+
+    /**
+     * Prints the final solution to standard output.
+     */
+    public void printSolution() {
+        System.out.printf("_______________________\nHYBRID GENETIC SEARCH\nSOLUTION DISTANCE: %.4f\n_______________________\n", final_distance);
+        int i = 1;
+        for (int a : best_solution) {
+            if (a == 0 && i != best_solution.size() && i != 1) {
+                System.out.print("0\n0 ");
+            }
+            else {
+                System.out.printf("%d ", a);
+            }
+            i++;
+        }
+        System.out.println();
+    }
+
+    public void log(PrintWriter printer) {
+        printer.printf("7,%.4f\n", final_distance);
+    }
+
+    /**
+     * Worker class.
+     *
+     * Buffers of one pool thread: Split, LocalSearch and the marks of order crossover.
+     */
+    private class Worker {
+
+        /** Optimal cutter of giant tours. */
+        private final Split split;
+
+        /** Education. */
+        private final LocalSearch search;
+
+        /** Customers already placed in the offspring. */
+        private final boolean[] placed;
+
+        /**
+         * Constructor for Worker object.
+         *
+         * @param demands Demand of each node.
+         * @param deadline System.nanoTime() after which education stops early.
+         */
+        Worker(double[] demands, long deadline) {
+            this.split = new Split(floydWarshall.getPaths(), demands, CAPACITY);
+            this.search = new LocalSearch(floydWarshall.getPaths(), demands, CAPACITY);
+            this.search.setCandidates(candidates);
+            this.search.setDeadline(deadline);
+            this.placed = new boolean[demands.length];
+        }
+
+        /**
+         * Splits and educates a giant tour.
+         *
+         * @param tour The giant tour.
+         * @return The individual.
+         */
+        Individual educate(int[] tour) {
+            IntList list = new IntList(tour.length);
+            for (int node : tour) {
+                list.add(node);
+            }
+            split.split(list);
+            return educate(split.routes());
+        }
+
+        /**
+         * Educates routes.
+         *
+         * @param routes Routes, or customers split by capacity.
+         * @return The individual.
+         */
+        Individual educate(List<Integer> routes) {
+            List<Integer> educated = search.polish(routes);
+            return new Individual(educated, search.cost(), placed.length);
+        }
+
+        /**
+         * Makes an offspring by order crossover: a random circular segment of the first
+         * parent is kept in place, and the remaining positions are filled with the other
+         * customers in the order of the second parent, starting after the segment.
+         *
+         * @param first First parent.
+         * @param second Second parent.
+         * @param random Random stream.
+         * @return The educated offspring.
+         */
+        Individual crossover(Individual first, Individual second, SplittableRandom random) {
+            int n = first.tour.length;
+            int[] child = new int[n];
+            if (n == 0) {
+                return educate(child);
+            }
+            int start = random.nextInt(n);
+            int end = random.nextInt(n);
+            while (end == start && n > 1) {
+                end = random.nextInt(n);
+            }
+            int i = start;
+            while (true) {
+                child[i] = first.tour[i];
+                placed[child[i]] = true;
+                if (i == end) {
+                    break;
+                }
+                i = (i + 1) % n;
+            }
+            int position = (end + 1) % n;
+            for (int k = 1; k <= n; k++) {
+                int node = second.tour[(end + k) % n];
+                if (!placed[node]) {
+                    child[position] = node;
+                    position = (position + 1) % n;
+                }
+            }
+            for (int node : child) {
+                placed[node] = false;
+            }
+            return educate(child);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package procedures.heuristics;
+
+import java.util.List;
+
+/**
+ * Improvement interface.
+ *
+ * Improvement method that works in small steps, so that a caller can stop it at any
+ * moment, for example AnytimeSolver when its budget is spent. Solutions are lists of
+ * customers where every route starts and ends at the depot.
+ */
+public interface Improvement {
+
+    /**
+     * Starts improving a solution.
+     *
+     * @param solution The solution, optionally split into routes by zeros.
+     */
+    void start(List<Integer> solution);
+
+    /**
+     * Performs one move evaluation.
+     *
+     * @param progress Spent share of the budget, from 0 to 1.
+     */
+    void step(double progress);
+
+    /**
+     * Returns cost of the best solution so far.
+     *
+     * @return The cost.
+     */
+    double bestCost();
+
+    /**
+     * Returns the best solution so far, every route starts and ends at the depot.
+     *
+     * @return The routes.
+     */
+    List<Integer> bestRoutes();
+}
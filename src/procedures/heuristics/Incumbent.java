@@ -0,0 +1,75 @@
+package procedures.heuristics;
+
+import java.util.List;
+
+/**
+ * Incumbent class.
+ *
+ * Immutable best solution of an anytime run at some moment.
+ */
+public class Incumbent {
+
+    /** Cost of the solution. */
+    private final double cost;
+
+    /** The solution, every route starts and ends at the depot. */
+    private final List<Integer> routes;
+
+    /** Time since the start of the run when the solution was found. */
+    private final long elapsed_nanos;
+
+    /** Number of move evaluations before the solution was found. */
+    private final long evaluations;
+
+    /**
+     * Constructor for Incumbent object.
+     *
+     * @param cost Cost of the solution.
+     * @param routes The solution.
+     * @param elapsed_nanos Time since the start of the run.
+     * @param evaluations Number of move evaluations.
+     */
+    Incumbent(double cost, List<Integer> routes, long elapsed_nanos, long evaluations) {
+        this.cost = cost;
+        this.routes = routes;
+        this.elapsed_nanos = elapsed_nanos;
+        this.evaluations = evaluations;
+    }
+
+    /**
+     * Returns cost of the solution.
+     *
+     * @return The cost.
+     */
+    public double cost() {
+        return this.cost;
+    }
+
+    /**
+     * Returns the solution, every route starts and ends at the depot. Use
+     * FloydWarshall.finalizePath() to expand it into a path.
+     *
+     * @return The routes.
+     */
+    public List<Integer> routes() {
+        return this.routes;
+    }
+
+    /**
+     * Returns time since the start of the run when the solution was found.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long elapsedNanos() {
+        return this.elapsed_nanos;
+    }
+
+    /**
+     * Returns number of move evaluations before the solution was found.
+     *
+     * @return The number.
+     */
+    public long evaluations() {
+        return this.evaluations;
+    }
+}
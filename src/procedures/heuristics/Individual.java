@@ -0,0 +1,164 @@
+package procedures.heuristics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Individual class.
+ *
+ * Member of the population of HybridGeneticSearch. The chromosome is a giant tour,
+ * the customers of all routes one after another, and the routes are kept beside it.
+ * Successor and predecessor of every customer give the broken-pairs distance to
+ * other individuals, which measures how many edges two solutions do not share.
+ */
+class Individual {
+
+    /** Customers of all routes, without zeros. */
+    final int[] tour;
+
+    /** Routes, every route starts and ends at the depot. */
+    final int[] routes;
+
+    /** Cost of the routes. */
+    final double cost;
+
+    /** Next stop of every customer, 0 for the depot. */
+    private final int[] succ;
+
+    /** Previous stop of every customer, 0 for the depot. */
+    private final int[] pred;
+
+    /** Broken-pairs distance to other members of the population. */
+    private final Map<Individual, Double> distances = new IdentityHashMap<>();
+
+    /** Rank-based fitness that rewards both cost and diversity, lower is better. */
+    double biased_fitness;
+
+    /**
+     * Constructor for Individual object.
+     *
+     * @param routes Routes, every route starts and ends at the depot.
+     * @param cost Cost of the routes.
+     * @param size Number of graph nodes.
+     */
+    Individual(List<Integer> routes, double cost, int size) {
+        this.routes = new int[routes.size()];
+        int[] customers_buffer = new int[routes.size()];
+        this.succ = new int[size];
+        this.pred = new int[size];
+        this.cost = cost;
+        int customers = 0;
+        int previous = 0;
+        for (int i = 0; i < routes.size(); i++) {
+            int node = routes.get(i);
+            this.routes[i] = node;
+            if (node != 0) {
+                customers_buffer[customers++] = node;
+                pred[node] = previous;
+            }
+            if (previous != 0) {
+                succ[previous] = node;
+            }
+            previous = node;
+        }
+        if (previous != 0) {
+            succ[previous] = 0;
+        }
+        this.tour = Arrays.copyOf(customers_buffer, customers);
+    }
+
+    /**
+     * Returns the routes as a list.
+     *
+     * @return The routes.
+     */
+    List<Integer> routes() {
+        List<Integer> result = new ArrayList<>(routes.length);
+        for (int node : routes) {
+            result.add(node);
+        }
+        return result;
+    }
+
+    /**
+     * Returns broken-pairs distance to another individual: the share of customers
+     * whose neighbours differ in the two solutions, where a route may be reversed.
+     *
+     * @param other The other individual.
+     * @return The distance, from 0 for equal routes to 1.
+     */
+    double brokenPairs(Individual other) {
+        int broken = 0;
+        for (int node : tour) {
+            if (succ[node] != other.succ[node] && succ[node] != other.pred[node]) {
+                broken++;
+            }
+            if (pred[node] == 0 && other.pred[node] != 0 && other.succ[node] != 0) {
+                broken++;
+            }
+        }
+        return tour.length == 0 ? 0 : (double) broken / tour.length;
+    }
+
+    /**
+     * Stores distance between two individuals in both of them.
+     *
+     * @param other The other individual.
+     */
+    void link(Individual other) {
+        double distance = brokenPairs(other);
+        distances.put(other, distance);
+        other.distances.put(this, distance);
+    }
+
+    /**
+     * Removes distances to an individual that left the population.
+     *
+     * @param other The other individual.
+     */
+    void unlink(Individual other) {
+        distances.remove(other);
+        other.distances.remove(this);
+    }
+
+    /**
+     * Returns average distance to the closest other individuals.
+     *
+     * @param closest Number of individuals averaged.
+     * @return The distance, 1 if there are no others.
+     */
+    double averageDistance(int closest) {
+        if (distances.isEmpty()) {
+            return 1;
+        }
+        double[] values = new double[distances.size()];
+        int i = 0;
+        for (double distance : distances.values()) {
+            values[i++] = distance;
+        }
+        Arrays.sort(values);
+        int count = Math.min(closest, values.length);
+        double sum = 0;
+        for (int k = 0; k < count; k++) {
+            sum += values[k];
+        }
+        return sum / count;
+    }
+
+    /**
+     * Returns true if another member of the population has the same routes.
+     *
+     * @return The boolean.
+     */
+    boolean isClone() {
+        for (double distance : distances.values()) {
+            if (distance == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
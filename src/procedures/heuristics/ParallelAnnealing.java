@@ -0,0 +1,254 @@
+package procedures.heuristics;
+
+import procedures.grapher.Graph;
+import utilities.CandidateLists;
+import utilities.FloydWarshall;
+import utilities.Solution;
+import utilities.Utilities;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ParallelAnnealing class.
+ *
+ * Runs independent simulated annealing chains on a thread pool for a fixed wall-clock
+ * budget. Every chain has its own random stream and route evaluator. Chains publish
+ * their best routes to a lock-free holder and, every restart interval, a chain that
+ * is behind the global best continues from it. The temperature falls geometrically
+ * from the starting temperature to 1 over the budget.
+ */
+public class ParallelAnnealing {
+
+    /** Number of steps between two checks of the clock and the global best. */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /** Pointer to graph object. */
+    private final Graph graph;
+
+    /** Pointer to FloydWarshall object. */
+    private final FloydWarshall floydWarshall;
+
+    /** Greedy solver, which gives the starting solution. */
+    private final Greedy greedy;
+
+    /** Capacity of the car. */
+    private final double CAPACITY;
+
+    /** Number of chains. */
+    private final int chains;
+
+    /** Seed of the random streams of the chains. */
+    private final long seed;
+
+    /** Nearest customers of each node, that moves are restricted to, or null. */
+    private CandidateLists candidates;
+
+    /** Best routes found by any chain. */
+    private final AtomicReference<Best> best = new AtomicReference<>();
+
+    /** Total number of steps of all chains. */
+    private final AtomicLong steps = new AtomicLong();
+
+    /** Final path of the best solution. */
+    private List<Integer> best_solution;
+
+    /** Distance of the final path. */
+    private double final_distance;
+
+    /**
+     * Constructor for ParallelAnnealing object.
+     *
+     * @param graph Graph object.
+     * @param fw FloydWarshall object.
+     * @param greedy Greedy solver, which gives the starting solution.
+     * @param capacity Capacity of the car.
+     * @param chains Number of chains.
+     * @param seed Seed of the random streams, chain i uses seed + i.
+     */
+    public ParallelAnnealing(Graph graph, FloydWarshall fw, Greedy greedy, double capacity, int chains, long seed) {
+        if (chains < 1) {
+            throw new IllegalArgumentException("At least one chain is needed.");
+        }
+        this.graph = graph;
+        this.floydWarshall = fw;
+        this.greedy = greedy;
+        this.CAPACITY = capacity;
+        this.chains = chains;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets candidate lists that moves of all chains are restricted to.
+     *
+     * @param candidates The lists, or null for uniform random moves.
+     */
+    public void setCandidates(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Runs all chains until the budget is spent.
+     *
+     * @param pool Pool that runs the chains, one thread per chain is best.
+     * @param starting_temperature Starting temperature.
+     * @param budget_millis Wall-clock budget in milliseconds.
+     * @param restart_millis Interval in milliseconds after which chains that are
+     *                       behind continue from the global best.
+     */
+    public void solve(ForkJoinPool pool, double starting_temperature, long budget_millis, long restart_millis) {
+        double[] demands = new double[graph.size()];
+        for (int i = 0; i < demands.length; i++) {
+            demands[i] = graph.csr().demand(i);
+        }
+        List<Integer> start = greedy.getSolution();
+        Solution initial = Solution.of(graph, floydWarshall.getPaths(), CAPACITY, start);
+        best.set(new Best(initial.cost(), initial.toList()));
+        steps.set(0);
+        long begin = System.nanoTime();
+        long budget = budget_millis * 1_000_000L;
+        long restart = restart_millis * 1_000_000L;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int c = 0; c < chains; c++) {
+            long chain_seed = seed + c;
+            tasks.add(() -> {
+                AnnealingChain chain = new AnnealingChain(floydWarshall.getPaths(), demands, CAPACITY, candidates, new Utilities(chain_seed));
+                chain.start(start);
+                double published = chain.bestCost();
+                long next_restart = begin + restart;
+                long now = begin;
+                while (now - begin < budget) {
+                    double temperature = Math.pow(starting_temperature, 1 - (double) (now - begin) / budget);
+                    for (int i = 0; i < CHECK_INTERVAL; i++) {
+                        chain.step(temperature);
+                    }
+                    steps.addAndGet(CHECK_INTERVAL);
+                    if (chain.bestCost() < published) {
+                        published = chain.bestCost();
+                        offer(published, chain.bestRoutes());
+                    }
+                    now = System.nanoTime();
+                    if (now >= next_restart) {
+                        next_restart = now + restart;
+                        Best global = best.get();
+                        if (global.cost < chain.cost()) {
+                            chain.start(global.routes);
+                            published = chain.bestCost();
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        List<Future<Void>> futures = pool.invokeAll(tasks);
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while annealing.", e);
+            }
+            catch (ExecutionException e) {
+                throw new RuntimeException("Annealing chain failed.", e.getCause());
+            }
+        }
+        best_solution = floydWarshall.finalizePath(best.get().routes);
+        final_distance = floydWarshall.distance();
+    }
+
+    /**
+     * Replaces the global best if routes are better.
+     *
+     * @param cost Cost of the routes.
+     * @param routes The routes.
+     */
+    private void offer(double cost, List<Integer> routes) {
+        Best candidate = new Best(cost, routes);
+        Best current = best.get();
+        while (cost < current.cost && !best.compareAndSet(current, candidate)) {
+            current = best.get();
+        }
+    }
+
+    /**
+     * Returns total number of steps of all chains in the last run.
+     *
+     * @return The number.
+     */
+    public long steps() {
+        return steps.get();
+    }
+
+    /**
+     * Returns the final path of the best solution.
+     *
+     * @return The path.
+     */
+    public List<Integer> getSolution() {
+        return this.best_solution;
+    }
+
+    /**
+     * Returns distance of the best solution.
+     *
+     * @return The distance.
+     */
+    public double distance() {
+        return this.final_distance;
+    }
+
+    /**
+     * Prints the final solution to standard output.
+     */
+    public void printSolution() {
+        System.out.printf("_______________________\nPARALLEL SIMULATED ANNEALING\nSOLUTION DISTANCE: %.4f\n_______________________\n", final_distance);
+        int i = 1;
+        for (int a : best_solution) {
+            if (a == 0 && i != best_solution.size() && i != 1) {
+                System.out.print("0\n0 ");
+            }
+            else {
+                System.out.printf("%d ", a);
+            }
+            i++;
+        }
+        System.out.println();
+    }
+
+    public void log(PrintWriter printer) {
+        printer.printf("5,%.4f\n", final_distance);
+    }
+
+    /**
+     * Best class.
+     *
+     * Immutable pair of routes and their cost.
+     */
+    private static class Best {
+
+        /** Cost of the routes. */
+        final double cost;
+
+        /** The routes, every route starts and ends at the depot. */
+        final List<Integer> routes;
+
+        /**
+         * Constructor for Best object.
+         *
+         * @param cost Cost of the routes.
+         * @param routes The routes.
+         */
+        Best(double cost, List<Integer> routes) {
+            this.cost = cost;
+            this.routes = routes;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package procedures.heuristics;
+
+import procedures.grapher.Graph;
+import utilities.CandidateLists;
+import utilities.FloydWarshall;
+import utilities.Utilities;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+
+/**
+ * ReplicaExchange class.
+ *
+ * Parallel tempering: K annealing replicas run at fixed temperatures of a geometric
+ * ladder, each on its own thread. After every sweep of moves all replicas meet at a
+ * phaser, and the last one to arrive attempts swaps between neighbouring
+ * temperatures, alternating even and odd pairs. A swap of replicas with costs Ei, Ej
+ * at temperatures Ti, Tj is accepted with probability
+ * min(1, exp((1 / Ti - 1 / Tj) * (Ei - Ej))). Good solutions so drift to cold
+ * replicas while hot ones keep exploring, without a cooling schedule to tune.
+ *
+ * Replicas use the route moves of AnnealingChain, evaluated against the
+ * Floyd-Warshall distances.
+ */
+public class ReplicaExchange {
+
+    /** Pointer to graph object. */
+    private final Graph graph;
+
+    /** Pointer to FloydWarshall object. */
+    private final FloydWarshall floydWarshall;
+
+    /** Greedy solver, which gives the starting solution. */
+    private final Greedy greedy;
+
+    /** Capacity of the car. */
+    private final double CAPACITY;
+
+    /** Number of replicas. */
+    private final int replicas;
+
+    /** Seed of the random streams. */
+    private final long seed;
+
+    /** Nearest customers of each node, that moves are restricted to, or null. */
+    private CandidateLists candidates;
+
+    /** Accepted swaps between ladder positions i and i + 1. */
+    private long[] accepted;
+
+    /** Attempted swaps between ladder positions i and i + 1. */
+    private long[] attempted;
+
+    /** Total number of steps of all replicas. */
+    private long steps;
+
+    /** Final path of the best solution. */
+    private List<Integer> best_solution;
+
+    /** Distance of the final path. */
+    private double final_distance;
+
+    /**
+     * Constructor for ReplicaExchange object.
+     *
+     * @param graph Graph object.
+     * @param fw FloydWarshall object.
+     * @param greedy Greedy solver, which gives the starting solution.
+     * @param capacity Capacity of the car.
+     * @param replicas Number of replicas, at least two.
+     * @param seed Seed of the random streams.
+     */
+    public ReplicaExchange(Graph graph, FloydWarshall fw, Greedy greedy, double capacity, int replicas, long seed) {
+        if (replicas < 2) {
+            throw new IllegalArgumentException("At least two replicas are needed.");
+        }
+        this.graph = graph;
+        this.floydWarshall = fw;
+        this.greedy = greedy;
+        this.CAPACITY = capacity;
+        this.replicas = replicas;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets candidate lists that moves of all replicas are restricted to.
+     *
+     * @param candidates The lists, or null for uniform random moves.
+     */
+    public void setCandidates(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Runs all replicas until the budget is spent.
+     *
+     * @param pool Pool that runs the replicas; it needs a thread per replica, since
+     *             replicas wait for each other.
+     * @param min_temperature Temperature of the coldest replica.
+     * @param max_temperature Temperature of the hottest replica.
+     * @param sweep Number of moves of each replica between two swap attempts.
+     * @param budget_millis Wall-clock budget in milliseconds.
+     */
+    public void solve(ForkJoinPool pool, double min_temperature, double max_temperature, int sweep, long budget_millis) {
+        if (pool.getParallelism() < replicas) {
+            throw new IllegalArgumentException("Pool must have a thread for every replica.");
+        }
+        double[] demands = new double[graph.size()];
+        for (int i = 0; i < demands.length; i++) {
+            demands[i] = graph.csr().demand(i);
+        }
+        List<Integer> start = greedy.getSolution();
+        AnnealingChain[] chains = new AnnealingChain[replicas];
+        double[] temperature = new double[replicas];
+        int[] replica_at = new int[replicas];
+        for (int r = 0; r < replicas; r++) {
+            chains[r] = new AnnealingChain(floydWarshall.getPaths(), demands, CAPACITY, candidates, new Utilities(seed + r + 1));
+            chains[r].start(start);
+            temperature[r] = min_temperature * Math.pow(max_temperature / min_temperature, (double) r / (replicas - 1));
+            replica_at[r] = r;
+        }
+        accepted = new long[replicas - 1];
+        attempted = new long[replicas - 1];
+        Utilities ut = new Utilities(seed);
+        long end = System.nanoTime() + budget_millis * 1_000_000L;
+        Phaser phaser = new Phaser(replicas) {
+            @Override
+            protected boolean onAdvance(int phase, int parties) {
+                for (int i = phase % 2; i + 1 < replicas; i += 2) {
+                    int cold = replica_at[i];
+                    int hot = replica_at[i + 1];
+                    double exponent = (1 / temperature[cold] - 1 / temperature[hot]) * (chains[cold].cost() - chains[hot].cost());
+                    attempted[i]++;
+                    if (exponent >= 0 || ut.randomDouble(0, 1) < Math.exp(exponent)) {
+                        accepted[i]++;
+                        double t = temperature[cold];
+                        temperature[cold] = temperature[hot];
+                        temperature[hot] = t;
+                        replica_at[i] = hot;
+                        replica_at[i + 1] = cold;
+                    }
+                }
+                return System.nanoTime() >= end;
+            }
+        };
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int r = 0; r < replicas; r++) {
+            AnnealingChain chain = chains[r];
+            int replica = r;
+            tasks.add(() -> {
+                boolean finished = false;
+                try {
+                    do {
+                        double t = temperature[replica];
+                        for (int i = 0; i < sweep; i++) {
+                            chain.step(t);
+                        }
+                    } while (phaser.arriveAndAwaitAdvance() >= 0);
+                    finished = true;
+                }
+                finally {
+                    // A failed step or swap would leave the other replicas waiting at
+                    // the phaser, so they are released and the failure is reported.
+                    if (!finished) {
+                        phaser.forceTermination();
+                    }
+                }
+                return null;
+            });
+        }
+        List<Future<Void>> futures = pool.invokeAll(tasks);
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while tempering.", e);
+            }
+            catch (ExecutionException e) {
+                throw new RuntimeException("Replica failed.", e.getCause());
+            }
+        }
+        AnnealingChain best = chains[0];
+        steps = 0;
+        for (AnnealingChain chain : chains) {
+            steps += chain.steps();
+            if (chain.bestCost() < best.bestCost()) {
+                best = chain;
+            }
+        }
+        best_solution = floydWarshall.finalizePath(best.bestRoutes());
+        final_distance = floydWarshall.distance();
+    }
+
+    /**
+     * Returns the share of accepted swaps between two neighbouring temperatures of the
+     * last run. Rates near zero mean the ladder needs more or closer temperatures.
+     *
+     * @param i Position on the ladder, the pair is i and i + 1.
+     * @return The rate.
+     */
+    public double acceptanceRate(int i) {
+        return attempted[i] == 0 ? 0 : (double) accepted[i] / attempted[i];
+    }
+
+    /**
+     * Returns total number of moves of all replicas in the last run.
+     *
+     * @return The number.
+     */
+    public long steps() {
+        return this.steps;
+    }
+
+    /**
+     * Returns the final path of the best solution.
+     *
+     * @return The path.
+     */
+    public List<Integer> getSolution() {
+        return this.best_solution;
+    }
+
+    /**
+     * Returns distance of the best solution.
+     *
+     * @return The distance.
+     */
+    public double distance() {
+        return this.final_distance;
+    }
+
+    /**
+     * Prints the final solution to standard output.
+     */
+    public void printSolution() {
+        System.out.printf("_______________________\nREPLICA EXCHANGE\nSOLUTION DISTANCE: %.4f\n_______________________\n", final_distance);
+        int i = 1;
+        for (int a : best_solution) {
+            if (a == 0 && i != best_solution.size() && i != 1) {
+                System.out.print("0\n0 ");
+            }
+            else {
+                System.out.printf("%d ", a);
+            }
+            i++;
+        }
+        System.out.println();
+    }
+
+    public void log(PrintWriter printer) {
+        printer.printf("6,%.4f\n", final_distance);
+    }
+}
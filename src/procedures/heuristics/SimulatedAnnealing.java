@@ -1,7 +1,12 @@
 package procedures.heuristics;
 
 import procedures.grapher.Graph;
+import utilities.CandidateLists;
 import utilities.FloydWarshall;
+import utilities.ObjectiveCache;
+import utilities.RouteExpander;
+import utilities.Solution;
+import utilities.Split;
 import utilities.Utilities;
 
 import java.io.PrintWriter;
@@ -23,59 +28,233 @@ public class SimulatedAnnealing {
 
     private List<Integer> best_solution;
 
+    /** Customers of the best solution in the order they are served, split into routes by zeros. */
+    private List<Integer> best_routes;
+
+    /** Solution the search starts from, or null to start from the greedy one. */
+    private Solution start;
+
     private double final_distance;
 
     private Utilities ut;
 
+    private RouteExpander expander;
+
+    /** Nearest customers of each node, that moves are restricted to, or null. */
+    private CandidateLists candidates;
+
+    /** Optimal cutter of permutations into routes, or null to cut them greedily. */
+    private Split split;
+
+    /** Number of objective values kept by the cache. */
+    private static final int CACHE_SIZE = 1 << 16;
+
+    /** Objective values of recently evaluated permutations, dropped at the start of every search. */
+    private final ObjectiveCache cache = new ObjectiveCache(CACHE_SIZE);
+
     public SimulatedAnnealing(Graph graph, FloydWarshall fw, Greedy greedy, double capacity, Utilities ut) {
         this.graph = graph;
         this.floydWarshall = fw;
+        this.expander = fw.newExpander();
         this.greedy = greedy;
         this.CAPACITY = capacity;
         this.ut = ut;
     }
 
     public void solve(double lambda, double starting_temperature) {
-        current_solution = greedy.getSolution();
+        // Distances may have changed since the last search, for example by closed edges.
+        cache.clear();
+        current_solution = start != null ? start.permutation() : greedy.getSolution();
         best_solution = ut.copy(current_solution);
+        double current_objective = objective(current_solution);
+        double best_objective = current_objective;
         for (double temperature = starting_temperature; temperature > 1; temperature *= lambda) {
             List<Integer> new_solution = generateNeighbour();
-            if (objective(new_solution) < objective(best_solution)) {
+            double new_objective = objective(new_solution);
+            if (new_objective < best_objective) {
                 best_solution = ut.copy(new_solution);
+                best_objective = new_objective;
             }
-            if (objective(new_solution) < objective(current_solution)) {
+            if (new_objective < current_objective) {
                 current_solution = ut.copy(new_solution);
+                current_objective = new_objective;
             }
             else {
-                double probability = Math.exp(-(objective(new_solution) - objective(current_solution)) / temperature);
+                double probability = Math.exp(-(new_objective - current_objective) / temperature);
                 double r = ut.randomDouble(0, 1);
                 if (r < probability) {
                     current_solution = ut.copy(new_solution);
+                    current_objective = new_objective;
                 }
             }
         }
-        best_solution = floydWarshall.finalizePath(floydWarshall.permutationToPath(best_solution, CAPACITY));
+        if (split != null) {
+            split.split(best_solution);
+            best_routes = split.routes();
+            best_solution = floydWarshall.finalizePath(best_routes);
+        }
+        else {
+            best_routes = floydWarshall.servedRoutes(best_solution, CAPACITY);
+            best_solution = floydWarshall.finalizePath(floydWarshall.permutationToPath(best_solution, CAPACITY));
+        }
+        final_distance = floydWarshall.distance();
+    }
+
+    /**
+     * Simulated annealing over explicit routes with O(1) move evaluation.
+     *
+     * The greedy permutation is split into routes by capacity. Each iteration picks a
+     * random customer and either swaps it with another customer or moves it after
+     * another customer or a route start, which may open a new route. Only the change
+     * of cost is computed, so an iteration takes the same time on any instance and
+     * millions of iterations are practical. Moves that break capacity are rejected.
+     * Unlike solve(), customers passed on the way are not picked up, every route
+     * visits exactly its own customers.
+     *
+     * @param lambda Cooling factor.
+     * @param starting_temperature Starting temperature, the search stops at 1.
+     */
+    public void solveIncremental(double lambda, double starting_temperature) {
+        double[] demands = new double[graph.size()];
+        for (int i = 0; i < demands.length; i++) {
+            demands[i] = graph.csr().demand(i);
+        }
+        AnnealingChain chain = new AnnealingChain(floydWarshall.getPaths(), demands, CAPACITY, candidates, ut);
+        chain.start(start != null ? start.toList() : greedy.getSolution());
+        for (double temperature = starting_temperature; temperature > 1; temperature *= lambda) {
+            chain.step(temperature);
+        }
+        current_solution = chain.permutation();
+        best_routes = chain.bestRoutes();
+        best_solution = floydWarshall.finalizePath(best_routes);
         final_distance = floydWarshall.distance();
     }
 
+    /**
+     * Returns route-based annealing as a step-wise improvement method, for example for
+     * AnytimeSolver. The temperature falls geometrically from the starting temperature
+     * to 1 as the budget is spent.
+     *
+     * @param starting_temperature Starting temperature.
+     * @return The improvement method.
+     */
+    public Improvement improvement(double starting_temperature) {
+        double[] demands = new double[graph.size()];
+        for (int i = 0; i < demands.length; i++) {
+            demands[i] = graph.csr().demand(i);
+        }
+        AnnealingChain chain = new AnnealingChain(floydWarshall.getPaths(), demands, CAPACITY, candidates, ut);
+        return new Improvement() {
+            @Override
+            public void start(List<Integer> solution) {
+                chain.start(solution);
+            }
+
+            @Override
+            public void step(double progress) {
+                chain.step(Math.pow(starting_temperature, 1 - progress));
+            }
+
+            @Override
+            public double bestCost() {
+                return chain.bestCost();
+            }
+
+            @Override
+            public List<Integer> bestRoutes() {
+                return chain.bestRoutes();
+            }
+        };
+    }
+
     public List<Integer> generateNeighbour() {
         double probability = ut.randomDouble(0, 1);
         List<Integer> result;
         if (probability > 0.5) {
             int first = ut.randomInt(current_solution.size());
-            int second = ut.randomInt(current_solution.size()) ;
+            int second = candidates == null ? ut.randomInt(current_solution.size()) : nextToCandidate(first, true);
             result = ut.copy(current_solution);
             Collections.swap(result, first, second);
         }
         else {
             int first = ut.randomInt(current_solution.size());
-            int second = ut.randomInt(current_solution.size());
+            int second = candidates == null ? ut.randomInt(current_solution.size()) : nextToCandidate(first, false);
             int id = current_solution.get(first);
             result = ut.copy(current_solution);
             result.remove(first);
             result.add(second, id);
         }
-        return floydWarshall.fixPermutation(result, CAPACITY);
+        return split != null ? result : floydWarshall.fixPermutation(result, CAPACITY);
+    }
+
+    /**
+     * Sets candidate lists. Moves then put a node right after one of its candidates
+     * instead of at a random position ("granular" neighbourhood), so only O(V * k)
+     * distinct moves remain, and most of them join nearby customers.
+     *
+     * @param candidates The lists, or null for uniform random moves.
+     */
+    public void setCandidates(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Sets how solve() cuts permutations into routes. With Split, a permutation costs
+     * its optimal partition into routes that serve customers in its order, instead of
+     * the greedy cut of permutationToPath() that returns to the depot when the next
+     * node does not fit. Cached objectives are dropped, since they were computed the
+     * other way.
+     *
+     * @param split The split, or null to cut greedily.
+     */
+    public void setSplit(Split split) {
+        this.split = split;
+        cache.clear();
+    }
+
+    /**
+     * Returns the second position of a move that puts the node at a position right
+     * after a random one of its candidates.
+     *
+     * @param first Position of the node.
+     * @param swap True for a swap, false for a reinsertion after removing the node.
+     * @return The position, random if the node has no candidates.
+     */
+    private int nextToCandidate(int first, boolean swap) {
+        int node = current_solution.get(first);
+        int count = candidates.count(node);
+        int position = count == 0 ? -1 : current_solution.indexOf(candidates.get(node, ut.randomInt(count)));
+        if (position == -1) {
+            return ut.randomInt(current_solution.size());
+        }
+        if (swap) {
+            return position + 1 < current_solution.size() ? position + 1 : position - 1;
+        }
+        return position < first ? position + 1 : position;
+    }
+
+    /**
+     * Sets the solution that solve() and solveIncremental() start from.
+     *
+     * @param start The solution, or null to start from the greedy one.
+     */
+    public void setStart(Solution start) {
+        this.start = start;
+    }
+
+    /**
+     * Returns the best routes of the last search as a Solution, before shortest paths
+     * are expanded. Without Split these are the routes that the printed path serves,
+     * see FloydWarshall.servedRoutes(), so the cost can be below the final distance
+     * where that path turns back at a node that does not fit.
+     *
+     * @return The solution.
+     */
+    public Solution toSolution() {
+        if (best_routes == null) {
+            throw new IllegalStateException("There is no solution before solving.");
+        }
+        return Solution.of(graph, floydWarshall.getPaths(), CAPACITY, best_routes);
     }
 
     /**
@@ -111,8 +290,19 @@ public class SimulatedAnnealing {
     }
 
     public double objective(List<Integer> permutation) {
-        floydWarshall.finalizePath(floydWarshall.permutationToPath(permutation, CAPACITY));
-        return floydWarshall.distance();
+        if (split != null) {
+            return cache.evaluate(permutation, split::split);
+        }
+        return cache.evaluate(permutation, p -> expander.evaluate(p, CAPACITY));
+    }
+
+    /**
+     * Returns the cache of objective values, for hit-rate metrics.
+     *
+     * @return The cache.
+     */
+    public ObjectiveCache cache() {
+        return this.cache;
     }
 
     public void log(PrintWriter printer) {
@@ -0,0 +1,512 @@
+package procedures.heuristics.island;
+
+import procedures.grapher.Graph;
+import procedures.heuristics.Greedy;
+import procedures.heuristics.HybridGeneticSearch;
+import procedures.heuristics.Improvement;
+import procedures.heuristics.SimulatedAnnealing;
+import utilities.CandidateLists;
+import utilities.FloydWarshall;
+import utilities.Solution;
+import utilities.Utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Island class.
+ *
+ * One island of an island model: a solver in its own process that every migration
+ * interval sends its best solution to the next island of a ring and continues from
+ * the best solution it received, if that is better than its own. Islands listen on
+ * a TCP port and keep one connection to their successor. Migration is best effort:
+ * an island that is not reachable yet or any more is skipped until the next
+ * interval, so islands may start and finish at different times.
+ *
+ * The budget is CPU time of the whole process, so several islands on one machine
+ * and one process with their summed budget do the same amount of work however the
+ * cores are shared. Wall-clock time is used where the JVM cannot measure CPU time.
+ */
+public class Island implements Closeable {
+
+    /** Number of annealing steps between two checks of the clocks. */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /** Timeout for connecting to the next island, in milliseconds. */
+    private static final int CONNECT_TIMEOUT = 200;
+
+    /** Pointer to graph object. */
+    private final Graph graph;
+
+    /** Pointer to FloydWarshall object. */
+    private final FloydWarshall floydWarshall;
+
+    /** Capacity of the car. */
+    private final double CAPACITY;
+
+    /** Index of this island in the ring. */
+    private final int index;
+
+    /** Addresses of all islands of the ring, in order. */
+    private final List<InetSocketAddress> peers;
+
+    /** Seed of the random streams. */
+    private final long seed;
+
+    /** Nearest customers of each node, or null. */
+    private CandidateLists candidates;
+
+    /** Socket that receives migrants, null for a single island. */
+    private ServerSocket server;
+
+    /** Connection to the next island, or null while there is none. */
+    private Socket next;
+
+    /** Stream of the connection to the next island, or null while there is none. */
+    private DataOutputStream out;
+
+    /** Best migrant received since the last migration. */
+    private final AtomicReference<Migrant> inbox = new AtomicReference<>();
+
+    /** Number of sent migrants. */
+    private long sent;
+
+    /** Number of received migrants, counted by the reader threads. */
+    private final AtomicLong received = new AtomicLong();
+
+    /** Number of adopted migrants. */
+    private long adopted;
+
+    /** Number of nodes with demand, every migrant must serve each of them once. */
+    private int customers;
+
+    /** Best routes found or adopted. */
+    private List<Integer> best_routes;
+
+    /** Cost of the best routes. */
+    private double best_cost = Double.POSITIVE_INFINITY;
+
+    /** Used CPU milliseconds and best cost at every improvement. */
+    private final List<double[]> history = new ArrayList<>();
+
+    /** CPU time of the process at the start of the run, in nanoseconds. */
+    private long cpu_start;
+
+    /**
+     * Constructor for Island object.
+     *
+     * @param graph Graph object.
+     * @param fw FloydWarshall object with computed distances.
+     * @param capacity Capacity of the car.
+     * @param index Index of this island in the ring.
+     * @param peers Addresses of all islands of the ring, in order.
+     * @param seed Seed of the random streams.
+     */
+    public Island(Graph graph, FloydWarshall fw, double capacity, int index, List<InetSocketAddress> peers, long seed) {
+        if (index < 0 || index >= peers.size()) {
+            throw new IllegalArgumentException("Island " + index + " is not one of " + peers.size() + " peers.");
+        }
+        this.graph = graph;
+        this.floydWarshall = fw;
+        this.CAPACITY = capacity;
+        this.index = index;
+        this.peers = peers;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets candidate lists of the solvers.
+     *
+     * @param candidates The lists, or null.
+     */
+    public void setCandidates(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Starts listening for migrants on the address of this island in the ring, so
+     * islands on loopback addresses can not be reached from other machines. Called
+     * by the solve methods if needed.
+     *
+     * @throws IOException If the port cannot be bound.
+     */
+    public void open() throws IOException {
+        if (server != null || peers.size() == 1) {
+            return;
+        }
+        ServerSocket socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(peers.get(index));
+        server = socket;
+        Thread listener = new Thread(() -> listen(socket), "island-" + index + "-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    /**
+     * Accepts connections and starts a reader for each, until the socket is closed.
+     *
+     * @param server The listening socket.
+     */
+    private void listen(ServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread reader = new Thread(() -> read(socket), "island-" + index + "-reader");
+                reader.setDaemon(true);
+                reader.start();
+            }
+            catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads migrants from a connection until it is closed, keeping the best one.
+     *
+     * @param socket The connection.
+     */
+    private void read(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                Migrant migrant = Migrant.read(in, 2 * graph.size() + 1);
+                if (!valid(migrant)) {
+                    continue;
+                }
+                received.incrementAndGet();
+                Migrant current = inbox.get();
+                while ((current == null || migrant.cost < current.cost) && !inbox.compareAndSet(current, migrant)) {
+                    current = inbox.get();
+                }
+            }
+        }
+        catch (IOException e) {
+            // The sender finished or failed, migration is best effort.
+        }
+    }
+
+    /**
+     * Returns true if all stops of a migrant are nodes of the graph and no customer
+     * is visited twice.
+     *
+     * @param migrant The migrant.
+     * @return The boolean.
+     */
+    private boolean valid(Migrant migrant) {
+        boolean[] visited = new boolean[graph.size()];
+        for (int node : migrant.routes) {
+            if (node < 0 || node >= visited.length || (node != 0 && visited[node])) {
+                return false;
+            }
+            visited[node] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Sends the best routes to the next island and returns the best migrant received
+     * since the last call.
+     *
+     * @return The migrant, or null if none was received.
+     */
+    private Migrant migrate() {
+        if (peers.size() > 1 && best_routes != null) {
+            try {
+                if (out == null) {
+                    next = new Socket();
+                    next.connect(peers.get((index + 1) % peers.size()), CONNECT_TIMEOUT);
+                    next.setTcpNoDelay(true);
+                    out = new DataOutputStream(new BufferedOutputStream(next.getOutputStream()));
+                }
+                Migrant.of(index, best_cost, best_routes).write(out);
+                sent++;
+            }
+            catch (IOException e) {
+                disconnect();
+            }
+        }
+        return inbox.getAndSet(null);
+    }
+
+    /**
+     * Closes the connection to the next island.
+     */
+    private void disconnect() {
+        try {
+            if (next != null) {
+                next.close();
+            }
+        }
+        catch (IOException e) {
+            // Nothing left to release.
+        }
+        next = null;
+        out = null;
+    }
+
+    /**
+     * Takes a migrant as the best routes if it is better. The migrant must serve
+     * exactly the customers of the graph, the cost is computed again, and routes that
+     * exceed the capacity are cut greedily, so a wrong or malicious sender cannot make
+     * the island adopt an infeasible or worse solution.
+     *
+     * @param migrant The migrant, or null.
+     * @return The adopted solution, or null if the migrant was not better.
+     */
+    private Solution adopt(Migrant migrant) {
+        if (migrant == null || migrant.cost >= best_cost || !servesCustomers(migrant)) {
+            return null;
+        }
+        Solution solution = Solution.of(graph, floydWarshall.getPaths(), CAPACITY, migrant.routes());
+        if (solution.cost() >= best_cost) {
+            return null;
+        }
+        offer(solution.cost(), solution.toList());
+        adopted++;
+        return solution;
+    }
+
+    /**
+     * Returns true if a valid migrant serves every node with demand and no other node.
+     *
+     * @param migrant The migrant, which visits no customer twice.
+     * @return The boolean.
+     */
+    private boolean servesCustomers(Migrant migrant) {
+        int served = 0;
+        for (int node : migrant.routes) {
+            if (node == 0) {
+                continue;
+            }
+            if (graph.csr().demand(node) <= 0) {
+                return false;
+            }
+            served++;
+        }
+        return served == customers;
+    }
+
+    /**
+     * Stores routes if they are the best so far.
+     *
+     * @param cost Cost of the routes.
+     * @param routes The routes.
+     */
+    private void offer(double cost, List<Integer> routes) {
+        if (cost < best_cost) {
+            best_cost = cost;
+            best_routes = routes;
+            history.add(new double[] {cpuNanos() / 1e6, cost});
+        }
+    }
+
+    /**
+     * Returns CPU time used by the process since the start of the run.
+     *
+     * @return The time in nanoseconds.
+     */
+    private long cpuNanos() {
+        return processCpuTime() - cpu_start;
+    }
+
+    /**
+     * Returns CPU time of the process, or wall-clock time if it is not available.
+     *
+     * @return The time in nanoseconds.
+     */
+    private static long processCpuTime() {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            long time = ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+            if (time >= 0) {
+                return time;
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Starts a run: opens the port and takes the greedy solution as the first best.
+     *
+     * @return The greedy routes.
+     * @throws IOException If the port cannot be bound.
+     */
+    private List<Integer> begin() throws IOException {
+        open();
+        cpu_start = processCpuTime();
+        best_cost = Double.POSITIVE_INFINITY;
+        best_routes = null;
+        history.clear();
+        Greedy greedy = new Greedy(graph, floydWarshall, CAPACITY, new Utilities(seed));
+        greedy.setCandidates(candidates);
+        greedy.solve();
+        Solution start = greedy.toSolution();
+        customers = 0;
+        for (int i = 1; i < graph.size(); i++) {
+            if (graph.csr().demand(i) > 0) {
+                customers++;
+            }
+        }
+        offer(start.cost(), start.toList());
+        return best_routes;
+    }
+
+    /**
+     * Runs route-based simulated annealing. The temperature falls from the starting
+     * temperature to 1 as the budget is spent, and an adopted migrant replaces the
+     * current routes without resetting the temperature.
+     *
+     * @param starting_temperature Starting temperature.
+     * @param budget_millis CPU budget of the process in milliseconds.
+     * @param interval_millis Wall-clock interval between migrations in milliseconds.
+     * @throws IOException If the port cannot be bound.
+     */
+    public void solveAnnealing(double starting_temperature, long budget_millis, long interval_millis) throws IOException {
+        List<Integer> start = begin();
+        SimulatedAnnealing annealing = new SimulatedAnnealing(graph, floydWarshall, null, CAPACITY, new Utilities(seed));
+        annealing.setCandidates(candidates);
+        Improvement improvement = annealing.improvement(starting_temperature);
+        improvement.start(start);
+        long budget = budget_millis * 1_000_000L;
+        long interval = interval_millis * 1_000_000L;
+        long next_migration = System.nanoTime() + interval;
+        long used;
+        while ((used = cpuNanos()) < budget) {
+            double progress = (double) used / budget;
+            for (int i = 0; i < CHECK_INTERVAL; i++) {
+                improvement.step(progress);
+            }
+            if (improvement.bestCost() < best_cost) {
+                offer(improvement.bestCost(), improvement.bestRoutes());
+            }
+            if (System.nanoTime() >= next_migration) {
+                next_migration = System.nanoTime() + interval;
+                Solution migrant = adopt(migrate());
+                if (migrant != null) {
+                    improvement.start(best_routes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs hybrid genetic search in epochs of one migration interval. Every epoch
+     * starts a new population seeded with the best routes of the island and the
+     * migrant received, if any.
+     *
+     * Offspring are made on a pool of one thread. Hybrid genetic search measures its
+     * budget in wall-clock time, which one thread can not turn into more CPU time, so
+     * an epoch never spends more of the CPU budget than it was given.
+     *
+     * @param budget_millis CPU budget of the process in milliseconds.
+     * @param interval_millis Wall-clock length of an epoch in milliseconds.
+     * @throws IOException If the port cannot be bound.
+     */
+    public void solveGenetic(long budget_millis, long interval_millis) throws IOException {
+        begin();
+        long budget = budget_millis * 1_000_000L;
+        Solution migrant = null;
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            for (int epoch = 0; cpuNanos() < budget; epoch++) {
+                HybridGeneticSearch search = new HybridGeneticSearch(graph, floydWarshall, CAPACITY, seed + epoch);
+                search.setCandidates(candidates);
+                search.addSeed(Solution.of(graph, floydWarshall.getPaths(), CAPACITY, best_routes));
+                if (migrant != null) {
+                    search.addSeed(migrant);
+                }
+                long remaining = (budget - cpuNanos()) / 1_000_000L;
+                search.solve(pool, Math.max(1, Math.min(interval_millis, remaining)));
+                Solution solution = search.toSolution();
+                offer(solution.cost(), solution.toList());
+                migrant = adopt(migrate());
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns cost of the best routes.
+     *
+     * @return The cost.
+     */
+    public double cost() {
+        return this.best_cost;
+    }
+
+    /**
+     * Returns the best routes, every route starts and ends at the depot.
+     *
+     * @return The routes.
+     */
+    public List<Integer> routes() {
+        return this.best_routes;
+    }
+
+    /**
+     * Returns used CPU milliseconds and best cost at every improvement of the last run.
+     *
+     * @return Pairs of time and cost.
+     */
+    public List<double[]> history() {
+        return this.history;
+    }
+
+    /**
+     * Returns number of migrants sent.
+     *
+     * @return The number.
+     */
+    public long sent() {
+        return this.sent;
+    }
+
+    /**
+     * Returns number of migrants received.
+     *
+     * @return The number.
+     */
+    public long received() {
+        return received.get();
+    }
+
+    /**
+     * Returns number of received migrants that were better and replaced the routes.
+     *
+     * @return The number.
+     */
+    public long adopted() {
+        return this.adopted;
+    }
+
+    /**
+     * Stops listening and closes the connection to the next island.
+     *
+     * @throws IOException If the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        disconnect();
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package procedures.heuristics.island;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IslandLauncher class.
+ *
+ * Starts islands as separate JVM processes on the loopback interface and then runs a
+ * single process with the same solver and their summed CPU budget, to measure what
+ * the island model buys at equal total work. Arguments are the .vrp file, the number
+ * of islands, the CPU budget of one island and the migration interval in
+ * milliseconds, and optionally the solver (sa or hgs, default sa) and the first port
+ * (default 47000).
+ *
+ * Speedup is the CPU time the single process needed to reach the best cost of the
+ * islands, divided by the budget of one island, that is how much faster the
+ * islands would be if each had a core of its own. If the single process never
+ * reaches that cost, the speedup is reported as at least its budget over the budget
+ * of one island.
+ */
+public class IslandLauncher {
+
+    /** Default first port of the islands. */
+    private static final int BASE_PORT = 47000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            throw new IllegalArgumentException("Usage: IslandLauncher instance islands budget_ms interval_ms [sa|hgs] [base_port]");
+        }
+        String instance = args[0];
+        int islands = Integer.parseInt(args[1]);
+        long budget = Long.parseLong(args[2]);
+        String interval = args[3];
+        String mode = args.length > 4 ? args[4] : "sa";
+        int base_port = args.length > 5 ? Integer.parseInt(args[5]) : BASE_PORT;
+
+        StringBuilder peers = new StringBuilder();
+        for (int i = 0; i < islands; i++) {
+            peers.append(i == 0 ? "" : ",").append("127.0.0.1:").append(base_port + i);
+        }
+
+        // Run the islands.
+        long start = System.nanoTime();
+        List<Process> processes = new ArrayList<>();
+        List<File> outputs = new ArrayList<>();
+        for (int i = 0; i < islands; i++) {
+            File output = File.createTempFile("island-" + i + "-", ".txt");
+            output.deleteOnExit();
+            outputs.add(output);
+            processes.add(start(output, instance, i, peers.toString(), mode, budget, interval, i + 1));
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < islands; i++) {
+            if (processes.get(i).waitFor() != 0) {
+                throw new RuntimeException("Island " + i + " failed.");
+            }
+            for (String line : Files.readAllLines(outputs.get(i).toPath())) {
+                if (line.startsWith("RESULT")) {
+                    String[] fields = line.split(" ");
+                    best = Math.min(best, Double.parseDouble(fields[2]));
+                    System.out.printf("Island %s: cost %s, sent %s, received %s, adopted %s%n", fields[1], fields[2], fields[3], fields[4], fields[5]);
+                }
+            }
+        }
+        double island_wall = (System.nanoTime() - start) / 1e9;
+
+        // Run one process with the same total budget.
+        File output = File.createTempFile("island-single-", ".txt");
+        output.deleteOnExit();
+        long single_budget = budget * islands;
+        start = System.nanoTime();
+        Process single = start(output, instance, 0, "127.0.0.1:" + base_port, mode, single_budget, interval, 1);
+        if (single.waitFor() != 0) {
+            throw new RuntimeException("Single process failed.");
+        }
+        double single_wall = (System.nanoTime() - start) / 1e9;
+        double single_cost = Double.POSITIVE_INFINITY;
+        double reached = Double.NaN;
+        for (String line : Files.readAllLines(output.toPath())) {
+            String[] fields = line.split(" ");
+            if (line.startsWith("PROGRESS") && Double.isNaN(reached) && Double.parseDouble(fields[2]) <= best) {
+                reached = Double.parseDouble(fields[1]);
+            }
+            if (line.startsWith("RESULT")) {
+                single_cost = Double.parseDouble(fields[2]);
+            }
+        }
+
+        System.out.printf("Islands: %d x %d ms CPU, best cost %.3f, %.1f s wall%n", islands, budget, best, island_wall);
+        System.out.printf("Single process: %d ms CPU, cost %.3f, %.1f s wall%n", single_budget, single_cost, single_wall);
+        if (Double.isNaN(reached)) {
+            System.out.printf("Single process did not reach %.3f, speedup at least %.2f%n", best, (double) single_budget / budget);
+        }
+        else {
+            System.out.printf("Single process reached %.3f after %.0f ms CPU, speedup %.2f%n", best, reached, reached / budget);
+        }
+    }
+
+    /**
+     * Starts an island in a new JVM with the class path of this one.
+     *
+     * @param output File that receives standard output of the island.
+     * @param instance The .vrp file.
+     * @param index Index of the island.
+     * @param peers Addresses of all islands.
+     * @param mode The solver.
+     * @param budget CPU budget in milliseconds.
+     * @param interval Migration interval in milliseconds.
+     * @param seed Seed of the island.
+     * @return The process.
+     * @throws IOException If the process cannot be started.
+     */
+    private static Process start(File output, String instance, int index, String peers, String mode, long budget, String interval, long seed) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), IslandMain.class.getName(),
+                instance, Integer.toString(index), peers, mode, Long.toString(budget), interval, Long.toString(seed));
+        builder.redirectOutput(output);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+}
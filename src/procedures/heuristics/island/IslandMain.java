@@ -0,0 +1,86 @@
+package procedures.heuristics.island;
+
+import procedures.grapher.VrpInstance;
+import procedures.grapher.VrpReader;
+import utilities.CandidateLists;
+import utilities.FloydWarshall;
+import utilities.Utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IslandMain class.
+ *
+ * Runs one island in this process. Arguments are the .vrp file, the index of the
+ * island, the addresses of all islands as host:port separated by commas, the solver
+ * (sa or hgs), the CPU budget and the migration interval in milliseconds, the seed
+ * and optionally the number of candidates per node. A single address runs the
+ * solver alone, without sockets.
+ *
+ * Every improvement is printed as "PROGRESS cpu_millis cost" and the end as
+ * "RESULT index cost sent received adopted", so a launcher can read the output.
+ */
+public class IslandMain {
+
+    /** Starting temperature of annealing. */
+    private static final double STARTING_TEMPERATURE = 100;
+
+    /** Default number of candidates per node. */
+    private static final int DEFAULT_CANDIDATES = 20;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 7) {
+            throw new IllegalArgumentException("Usage: IslandMain instance index host:port,... sa|hgs budget_ms interval_ms seed [candidates]");
+        }
+        int index = Integer.parseInt(args[1]);
+        List<InetSocketAddress> peers = parsePeers(args[2]);
+        String mode = args[3];
+        long budget = Long.parseLong(args[4]);
+        long interval = Long.parseLong(args[5]);
+        long seed = Long.parseLong(args[6]);
+        int k = args.length > 7 ? Integer.parseInt(args[7]) : DEFAULT_CANDIDATES;
+
+        VrpInstance instance = VrpReader.read(new File(args[0]), false, new Utilities(seed));
+        FloydWarshall floydWarshall = new FloydWarshall(instance.graph());
+        floydWarshall.useMatrix(instance.matrix());
+
+        try (Island island = new Island(instance.graph(), floydWarshall, instance.capacity(), index, peers, seed)) {
+            island.setCandidates(k > 0 ? CandidateLists.of(floydWarshall.getPaths(), k) : null);
+            if (mode.equals("sa")) {
+                island.solveAnnealing(STARTING_TEMPERATURE, budget, interval);
+            }
+            else if (mode.equals("hgs")) {
+                island.solveGenetic(budget, interval);
+            }
+            else {
+                throw new IllegalArgumentException("Unknown solver " + mode + ".");
+            }
+            for (double[] point : island.history()) {
+                System.out.printf("PROGRESS %.0f %.3f%n", point[0], point[1]);
+            }
+            System.out.printf("RESULT %d %.3f %d %d %d%n", index, island.cost(), island.sent(), island.received(), island.adopted());
+        }
+    }
+
+    /**
+     * Parses addresses of islands.
+     *
+     * @param text Addresses as host:port separated by commas.
+     * @return The addresses.
+     */
+    static List<InetSocketAddress> parsePeers(String text) {
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (String peer : text.split(",")) {
+            int colon = peer.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Address " + peer + " has no port.");
+            }
+            peers.add(new InetSocketAddress(peer.substring(0, colon), Integer.parseInt(peer.substring(colon + 1))));
+        }
+        return peers;
+    }
+}
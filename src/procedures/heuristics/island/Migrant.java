@@ -0,0 +1,116 @@
+package procedures.heuristics.island;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migrant class.
+ *
+ * Solution sent from one island to another. On the wire a migrant is a magic
+ * number, the index of the sending island, the cost, the number of stops and the
+ * stops of the routes, with zeros between routes, all big-endian as written by
+ * DataOutputStream.
+ */
+final class Migrant {
+
+    /** First bytes of every message, "ISLD". */
+    private static final int MAGIC = 0x49534c44;
+
+    /** Index of the sending island. */
+    final int source;
+
+    /** Cost of the routes. */
+    final double cost;
+
+    /** The routes, every route starts and ends at the depot. */
+    final int[] routes;
+
+    /**
+     * Constructor for Migrant object.
+     *
+     * @param source Index of the sending island.
+     * @param cost Cost of the routes.
+     * @param routes The routes.
+     */
+    Migrant(int source, double cost, int[] routes) {
+        this.source = source;
+        this.cost = cost;
+        this.routes = routes;
+    }
+
+    /**
+     * Builds a migrant from routes given as a list.
+     *
+     * @param source Index of the sending island.
+     * @param cost Cost of the routes.
+     * @param routes The routes.
+     * @return The migrant.
+     */
+    static Migrant of(int source, double cost, List<Integer> routes) {
+        int[] stops = new int[routes.size()];
+        for (int i = 0; i < stops.length; i++) {
+            stops[i] = routes.get(i);
+        }
+        return new Migrant(source, cost, stops);
+    }
+
+    /**
+     * Returns the routes as a list.
+     *
+     * @return The routes.
+     */
+    List<Integer> routes() {
+        List<Integer> result = new ArrayList<>(routes.length);
+        for (int node : routes) {
+            result.add(node);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the migrant to a stream and flushes it.
+     *
+     * @param out The stream.
+     * @throws IOException If writing fails.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(source);
+        out.writeDouble(cost);
+        out.writeInt(routes.length);
+        for (int node : routes) {
+            out.writeInt(node);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a migrant from a stream. The length is checked before anything is
+     * allocated, so a malformed message can not claim more memory than routes of
+     * the graph take.
+     *
+     * @param in The stream.
+     * @param max_stops Largest number of stops accepted.
+     * @return The migrant.
+     * @throws IOException If reading fails or the message is malformed.
+     */
+    static Migrant read(DataInputStream in, int max_stops) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Bad migrant header.");
+        }
+        int source = in.readInt();
+        double cost = in.readDouble();
+        int length = in.readInt();
+        if (length < 0 || length > max_stops) {
+            throw new IOException("Bad migrant length " + length + ".");
+        }
+        int[] routes = new int[length];
+        for (int i = 0; i < length; i++) {
+            routes[i] = in.readInt();
+        }
+        return new Migrant(source, cost, routes);
+    }
+}
@@ -0,0 +1,103 @@
+package procedures.heuristics.localsearch;
+
+/**
+ * CrossExchange class.
+ *
+ * Exchanges a chain of up to three customers that follows customer u with a chain
+ * of up to three customers that starts at customer v in another route, so that v
+ * comes right after u. Both chains keep their direction, so only the four edges at
+ * their ends change, and their loads come from prefix loads. Exchanges of two
+ * single customers are left to Swap.
+ */
+public class CrossExchange implements Operator {
+
+    /** Longest chain that is exchanged. */
+    private static final int MAX_LENGTH = 3;
+
+    /** Route of customer u in the remembered move. */
+    private int first;
+
+    /** Route of customer v in the remembered move. */
+    private int second;
+
+    /** Position of the first customer of the chain in the first route. */
+    private int start_first;
+
+    /** Number of customers in the chain of the first route. */
+    private int length_first;
+
+    /** Position of the first customer of the chain in the second route. */
+    private int start_second;
+
+    /** Number of customers in the chain of the second route. */
+    private int length_second;
+
+    @Override
+    public double evaluate(Routes routes, int u, int v, double threshold) {
+        int ru = routes.routeOf(u);
+        int rv = routes.routeOf(v);
+        if (ru == rv) {
+            return threshold;
+        }
+        double capacity = routes.capacity();
+        int i = routes.position(u) + 1;
+        int j = routes.position(v);
+        int pv = routes.node(rv, j - 1);
+        int s1 = routes.node(ru, i);
+        double load_u = routes.load(ru);
+        double load_v = routes.load(rv);
+        for (int a = 1; a <= MAX_LENGTH && i + a <= routes.length(ru); a++) {
+            int e1 = routes.node(ru, i + a - 1);
+            int n1 = routes.node(ru, i + a);
+            double chain_u = routes.segmentLoad(ru, i, i + a);
+            double removal_u = routes.d(u, s1) + routes.d(e1, n1);
+            for (int b = a == 1 ? 2 : 1; b <= MAX_LENGTH && j + b <= routes.length(rv); b++) {
+                double chain_v = routes.segmentLoad(rv, j, j + b);
+                if (load_u - chain_u + chain_v > capacity || load_v - chain_v + chain_u > capacity) {
+                    continue;
+                }
+                int e2 = routes.node(rv, j + b - 1);
+                int n2 = routes.node(rv, j + b);
+                double delta = routes.d(u, v) + routes.d(e2, n1) + routes.d(pv, s1) + routes.d(e1, n2)
+                        - removal_u - routes.d(pv, v) - routes.d(e2, n2);
+                if (delta < threshold) {
+                    threshold = delta;
+                    first = ru;
+                    second = rv;
+                    start_first = i;
+                    length_first = a;
+                    start_second = j;
+                    length_second = b;
+                }
+            }
+        }
+        return threshold;
+    }
+
+    @Override
+    public void apply(Routes routes) {
+        int[] a = routes.customers(first);
+        int[] b = routes.customers(second);
+        routes.set(first, exchange(a, start_first, length_first, b, start_second, length_second));
+        routes.set(second, exchange(b, start_second, length_second, a, start_first, length_first));
+    }
+
+    /**
+     * Returns a route with a chain replaced by a chain of another route.
+     *
+     * @param route Customers of the route.
+     * @param start Position of the replaced chain.
+     * @param length Length of the replaced chain.
+     * @param other Customers of the other route.
+     * @param other_start Position of the new chain.
+     * @param other_length Length of the new chain.
+     * @return New array.
+     */
+    private static int[] exchange(int[] route, int start, int length, int[] other, int other_start, int other_length) {
+        int[] result = new int[route.length - length + other_length];
+        System.arraycopy(route, 0, result, 0, start);
+        System.arraycopy(other, other_start, result, start, other_length);
+        System.arraycopy(route, start + length, result, start + other_length, route.length - start - length);
+        return result;
+    }
+}
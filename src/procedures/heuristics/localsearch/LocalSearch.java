@@ -0,0 +1,293 @@
+package procedures.heuristics.localsearch;
+
+import procedures.grapher.Graph;
+import utilities.CandidateLists;
+import utilities.DistanceMatrix;
+import utilities.FloydWarshall;
+import utilities.IntList;
+import utilities.Solution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LocalSearch class.
+ *
+ * Improves a solution with a set of neighbourhoods until none of them finds an
+ * improving move. Moves are generated for pairs of a customer and one of its
+ * nearest customers when candidate lists are set, so a pass over all moves takes
+ * O(V * k) delta evaluations of O(1) each, and only changed routes are rebuilt.
+ * This is quick enough to polish the output of any solver, or to be called many
+ * times from a metaheuristic.
+ *
+ * Neighbourhoods that reverse parts of routes assume symmetric distances, which
+ * holds for shortest paths of undirected graphs.
+ */
+public class LocalSearch {
+
+    /** How improving moves are chosen. */
+    public enum Strategy {
+        /** Apply every improving move as soon as it is found. */
+        FIRST_IMPROVEMENT,
+        /** Apply only the best move of a whole pass. */
+        BEST_IMPROVEMENT
+    }
+
+    /** Smallest improvement that counts, guards against loops on rounding errors. */
+    private static final double EPSILON = 1e-9;
+
+    /** Current routes. */
+    private final Routes routes;
+
+    /** Neighbourhoods in the order they are tried. */
+    private List<Operator> operators;
+
+    /** Nearest customers of each node, or null to pair all customers. */
+    private CandidateLists candidates;
+
+    /** Newest route version at the last time each customer was tried with all its neighbours. */
+    private int[] tested = new int[0];
+
+    /** System.nanoTime() after which polishing stops early, or Long.MAX_VALUE. */
+    private long deadline = Long.MAX_VALUE;
+
+    /** Number of moves applied by the last polish. */
+    private int moves;
+
+    /** Number of passes of the last polish. */
+    private int passes;
+
+    /**
+     * Constructor for LocalSearch object.
+     *
+     * @param dists Shortest path distances.
+     * @param demands Demand of each node.
+     * @param capacity Capacity of the car.
+     */
+    public LocalSearch(DistanceMatrix dists, double[] demands, double capacity) {
+        this.routes = new Routes(dists, demands, capacity);
+        this.operators = new ArrayList<>(Arrays.asList(
+                new Relocate(), new Swap(), new TwoOpt(), new OrOpt(),
+                new TwoOptStar(), new SwapStar(), new CrossExchange()));
+    }
+
+    /**
+     * Constructor for LocalSearch object.
+     *
+     * @param graph Graph object.
+     * @param fw FloydWarshall object with computed distances.
+     * @param capacity Capacity of the car.
+     */
+    public LocalSearch(Graph graph, FloydWarshall fw, double capacity) {
+        this(fw.getPaths(), demands(graph), capacity);
+    }
+
+    /**
+     * Returns demands of all nodes of a graph.
+     *
+     * @param graph Graph object.
+     * @return The demands.
+     */
+    private static double[] demands(Graph graph) {
+        double[] demands = new double[graph.size()];
+        for (int i = 0; i < demands.length; i++) {
+            demands[i] = graph.csr().demand(i);
+        }
+        return demands;
+    }
+
+    /**
+     * Sets candidate lists that moves are restricted to.
+     *
+     * @param candidates The lists, or null to pair every two customers.
+     */
+    public void setCandidates(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Sets a moment after which polish() returns the routes it has, even if they are
+     * not a local optimum yet. The clock is read once per customer.
+     *
+     * @param deadline Value of System.nanoTime(), or Long.MAX_VALUE for no limit.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets neighbourhoods, in the order they are tried.
+     *
+     * @param operators The neighbourhoods.
+     */
+    public void setOperators(Operator... operators) {
+        this.operators = new ArrayList<>(Arrays.asList(operators));
+    }
+
+    /**
+     * Improves a solution with first improvement.
+     *
+     * @param solution Customers, optionally split into routes by zeros.
+     * @return Routes of a local optimum, each starting and ending at the depot.
+     */
+    public List<Integer> polish(List<Integer> solution) {
+        return polish(solution, Strategy.FIRST_IMPROVEMENT);
+    }
+
+    /**
+     * Improves a solution until no neighbourhood finds an improving move. A customer
+     * that does not fit on the car starts a new route.
+     *
+     * @param solution Customers, optionally split into routes by zeros.
+     * @param strategy How improving moves are chosen.
+     * @return Routes of a local optimum, each starting and ending at the depot.
+     */
+    public List<Integer> polish(List<Integer> solution, Strategy strategy) {
+        routes.load(solution);
+        IntList customers = new IntList();
+        for (int node : solution) {
+            if (node != 0) {
+                customers.add(node);
+            }
+        }
+        if (tested.length < routes.size()) {
+            tested = new int[routes.size()];
+        }
+        Arrays.fill(tested, -1);
+        moves = 0;
+        passes = 0;
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            passes++;
+            improved = strategy == Strategy.FIRST_IMPROVEMENT ? firstImprovement(customers) : bestImprovement(customers);
+        }
+        return routes.toList();
+    }
+
+    /**
+     * Improves routes of a solution in place.
+     *
+     * @param solution The solution.
+     * @param strategy How improving moves are chosen.
+     */
+    public void polish(Solution solution, Strategy strategy) {
+        solution.load(polish(solution.toList(), strategy));
+    }
+
+    /**
+     * Applies every improving move found in one pass. Pairs whose routes have not
+     * changed since the customer was last tried are skipped, so later passes only
+     * look at the parts of the solution that moved.
+     *
+     * @param customers Customers of the solution.
+     * @return True if a move was applied.
+     */
+    private boolean firstImprovement(IntList customers) {
+        boolean improved = false;
+        for (int c = 0; c < customers.size() && System.nanoTime() < deadline; c++) {
+            int u = customers.get(c);
+            int last = tested[u];
+            tested[u] = routes.stamp();
+            int count = neighbours(customers);
+            for (int n = 0; n < count; n++) {
+                int v = neighbour(customers, u, n);
+                if (v == -1 || routes.version(routes.routeOf(u)) <= last && routes.version(routes.routeOf(v)) <= last) {
+                    continue;
+                }
+                for (Operator operator : operators) {
+                    if (operator.evaluate(routes, u, v, -EPSILON) < -EPSILON) {
+                        operator.apply(routes);
+                        moves++;
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Applies the best move of one pass.
+     *
+     * @param customers Customers of the solution.
+     * @return True if a move was applied.
+     */
+    private boolean bestImprovement(IntList customers) {
+        double best = -EPSILON;
+        Operator chosen = null;
+        for (int c = 0; c < customers.size(); c++) {
+            int u = customers.get(c);
+            int count = neighbours(customers);
+            for (int n = 0; n < count; n++) {
+                int v = neighbour(customers, u, n);
+                if (v == -1) {
+                    continue;
+                }
+                for (Operator operator : operators) {
+                    double delta = operator.evaluate(routes, u, v, best);
+                    if (delta < best) {
+                        best = delta;
+                        chosen = operator;
+                    }
+                }
+            }
+        }
+        if (chosen == null) {
+            return false;
+        }
+        chosen.apply(routes);
+        moves++;
+        return true;
+    }
+
+    /**
+     * Returns number of neighbours of each customer.
+     *
+     * @param customers Customers of the solution.
+     * @return The number.
+     */
+    private int neighbours(IntList customers) {
+        return candidates == null ? customers.size() : candidates.k();
+    }
+
+    /**
+     * Returns a neighbour of a customer.
+     *
+     * @param customers Customers of the solution.
+     * @param u The customer.
+     * @param n Index of the neighbour.
+     * @return The neighbour, or -1 if it is not another customer of the solution.
+     */
+    private int neighbour(IntList customers, int u, int n) {
+        int v = candidates == null ? customers.get(n) : candidates.get(u, n);
+        return v <= 0 || v == u || routes.routeOf(v) == -1 ? -1 : v;
+    }
+
+    /**
+     * Returns cost of the last polished solution.
+     *
+     * @return The cost.
+     */
+    public double cost() {
+        return routes.cost();
+    }
+
+    /**
+     * Returns number of moves applied by the last polish.
+     *
+     * @return The number.
+     */
+    public int moves() {
+        return this.moves;
+    }
+
+    /**
+     * Returns number of passes of the last polish.
+     *
+     * @return The number.
+     */
+    public int passes() {
+        return this.passes;
+    }
+}
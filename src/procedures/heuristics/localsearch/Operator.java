@@ -0,0 +1,31 @@
+package procedures.heuristics.localsearch;
+
+/**
+ * Operator interface.
+ *
+ * Neighbourhood of local search. Moves are generated from a pair of customers u and
+ * v, where v is usually one of the nearest customers of u, and each move is scored
+ * by its change of cost in O(1). An operator remembers the best move it found until
+ * it is applied.
+ */
+public interface Operator {
+
+    /**
+     * Evaluates moves for a pair of customers. A move whose delta is below the
+     * threshold is remembered, replacing the previously remembered one.
+     *
+     * @param routes Current routes.
+     * @param u First customer.
+     * @param v Second customer.
+     * @param threshold Delta a move must beat.
+     * @return Delta of the remembered move, or the threshold if no move beat it.
+     */
+    double evaluate(Routes routes, int u, int v, double threshold);
+
+    /**
+     * Applies the remembered move.
+     *
+     * @param routes Current routes, the same that the move was evaluated on.
+     */
+    void apply(Routes routes);
+}
@@ -0,0 +1,100 @@
+package procedures.heuristics.localsearch;
+
+import utilities.IntList;
+
+/**
+ * OrOpt class.
+ *
+ * Moves a chain of two or three consecutive customers that starts at customer u
+ * next to customer v in the same route, keeping or reversing its direction. Single
+ * customers are moved by Relocate.
+ */
+public class OrOpt implements Operator {
+
+    /** Longest chain that is moved. */
+    private static final int MAX_LENGTH = 3;
+
+    /** Route of the remembered move. */
+    private int route;
+
+    /** Position of the first customer of the chain. */
+    private int start;
+
+    /** Number of customers in the chain. */
+    private int length;
+
+    /** Stop that the chain is put after, 0 for the start of the route. */
+    private int after;
+
+    /** True if the chain is reversed. */
+    private boolean reversed;
+
+    @Override
+    public double evaluate(Routes routes, int u, int v, double threshold) {
+        int r = routes.routeOf(u);
+        if (r != routes.routeOf(v)) {
+            return threshold;
+        }
+        int i = routes.position(u);
+        int j = routes.position(v);
+        int ps = routes.node(r, i - 1);
+        for (int l = 2; l <= MAX_LENGTH && i + l <= routes.length(r); l++) {
+            if (j >= i && j < i + l) {
+                break;
+            }
+            int e = routes.node(r, i + l - 1);
+            int ne = routes.node(r, i + l);
+            double removal = routes.d(ps, ne) - routes.d(ps, u) - routes.d(e, ne);
+            for (int k = j - 1; k <= j; k++) {
+                if (k >= i - 1 && k < i + l) {
+                    continue;
+                }
+                int a = routes.node(r, k);
+                int b = routes.node(r, k + 1);
+                double base = removal - routes.d(a, b);
+                double forward = base + routes.d(a, u) + routes.d(e, b);
+                double backward = base + routes.d(a, e) + routes.d(u, b);
+                if (Math.min(forward, backward) < threshold) {
+                    threshold = Math.min(forward, backward);
+                    route = r;
+                    start = i;
+                    length = l;
+                    after = a;
+                    reversed = backward < forward;
+                }
+            }
+        }
+        return threshold;
+    }
+
+    @Override
+    public void apply(Routes routes) {
+        int[] customers = routes.customers(route);
+        IntList result = new IntList(customers.length);
+        if (after == 0) {
+            chain(customers, result);
+        }
+        for (int k = 0; k < customers.length; k++) {
+            if (k >= start && k < start + length) {
+                continue;
+            }
+            result.add(customers[k]);
+            if (customers[k] == after) {
+                chain(customers, result);
+            }
+        }
+        routes.set(route, result.toArray());
+    }
+
+    /**
+     * Appends the chain in its new direction.
+     *
+     * @param customers Customers of the route.
+     * @param result Customers of the new route.
+     */
+    private void chain(int[] customers, IntList result) {
+        for (int k = 0; k < length; k++) {
+            result.add(customers[reversed ? start + length - 1 - k : start + k]);
+        }
+    }
+}
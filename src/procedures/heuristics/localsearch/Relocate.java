@@ -0,0 +1,98 @@
+package procedures.heuristics.localsearch;
+
+import utilities.IntList;
+
+/**
+ * Relocate class.
+ *
+ * Moves customer u right after or right before customer v, within a route or to
+ * another route.
+ */
+public class Relocate implements Operator {
+
+    /** Customer of the remembered move. */
+    private int node;
+
+    /** Stop that the customer is put after, 0 for the start of the route. */
+    private int after;
+
+    /** Route that the customer is put in. */
+    private int target;
+
+    @Override
+    public double evaluate(Routes routes, int u, int v, double threshold) {
+        int ru = routes.routeOf(u);
+        int rv = routes.routeOf(v);
+        if (ru != rv && routes.load(rv) + routes.demand(u) > routes.capacity()) {
+            return threshold;
+        }
+        int i = routes.position(u);
+        int pu = routes.node(ru, i - 1);
+        int nu = routes.node(ru, i + 1);
+        double removal = routes.d(pu, nu) - routes.d(pu, u) - routes.d(u, nu);
+        int j = routes.position(v);
+        for (int k = j - 1; k <= j; k++) {
+            int a = routes.node(rv, k);
+            int b = routes.node(rv, k + 1);
+            if (a == u || b == u) {
+                continue;
+            }
+            double delta = removal + routes.d(a, u) + routes.d(u, b) - routes.d(a, b);
+            if (delta < threshold) {
+                threshold = delta;
+                node = u;
+                after = a;
+                target = rv;
+            }
+        }
+        return threshold;
+    }
+
+    @Override
+    public void apply(Routes routes) {
+        int source = routes.routeOf(node);
+        if (source != target) {
+            routes.set(source, without(routes.customers(source), node));
+        }
+        routes.set(target, insert(without(routes.customers(target), node), after, node));
+    }
+
+    /**
+     * Returns customers without one of them.
+     *
+     * @param customers The customers.
+     * @param node Customer to leave out.
+     * @return New array.
+     */
+    static int[] without(int[] customers, int node) {
+        IntList result = new IntList(customers.length);
+        for (int c : customers) {
+            if (c != node) {
+                result.add(c);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Returns customers with a customer inserted after a stop.
+     *
+     * @param customers The customers.
+     * @param after Stop to insert after, 0 for the start of the route.
+     * @param node Customer to insert.
+     * @return New array.
+     */
+    static int[] insert(int[] customers, int after, int node) {
+        IntList result = new IntList(customers.length + 1);
+        if (after == 0) {
+            result.add(node);
+        }
+        for (int c : customers) {
+            result.add(c);
+            if (c == after) {
+                result.add(node);
+            }
+        }
+        return result.toArray();
+    }
+}
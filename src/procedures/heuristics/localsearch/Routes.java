@@ -0,0 +1,263 @@
+package procedures.heuristics.localsearch;
+
+import utilities.DistanceMatrix;
+import utilities.IntList;
+import utilities.Solution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes class.
+ *
+ * Explicit route structure for local search, built on Solution. The Solution keeps
+ * route, position, loads and costs of every customer and route; on top of it every
+ * route is also kept as an array, so operators can address customers by position,
+ * and every route has a version that changes whenever it is rewritten. Operators
+ * read this state to compute move deltas in constant time and rewrite the routes
+ * they change with set().
+ */
+public class Routes {
+
+    /** Shortest path distances. */
+    private final DistanceMatrix dists;
+
+    /** Demand of each node. */
+    private final double[] demands;
+
+    /** Routes with per-customer and per-route loads and costs. */
+    private final Solution solution;
+
+    /** Customers of each route, in the order of the solution. */
+    private final List<int[]> routes = new ArrayList<>();
+
+    /** Version of each route, a new one whenever the route is rewritten. */
+    private final IntList versions = new IntList();
+
+    /** Last version handed out, never reset so versions are not reused after load(). */
+    private int stamp;
+
+    /**
+     * Constructor for Routes object.
+     *
+     * @param dists Shortest path distances.
+     * @param demands Demand of each node.
+     * @param capacity Capacity of the car.
+     */
+    public Routes(DistanceMatrix dists, double[] demands, double capacity) {
+        this.dists = dists;
+        this.demands = demands;
+        this.solution = new Solution(dists, demands, capacity);
+    }
+
+    /**
+     * Loads a solution. Zeros end a route, and a customer that does not fit on the car
+     * starts a new one.
+     *
+     * @param customers Customers, optionally split into routes by zeros.
+     */
+    public void load(List<Integer> customers) {
+        solution.load(customers);
+        routes.clear();
+        versions.clear();
+        for (int r = 0; r < solution.routes(); r++) {
+            routes.add(solution.customers(r));
+            versions.add(++stamp);
+        }
+    }
+
+    /**
+     * Replaces customers of a route and updates positions, loads and costs.
+     *
+     * @param r The route.
+     * @param customers New customers of the route.
+     */
+    public void set(int r, int[] customers) {
+        solution.setRoute(r, customers);
+        routes.set(r, customers);
+        versions.set(r, ++stamp);
+    }
+
+    /**
+     * Returns the underlying solution. It must only be changed through set().
+     *
+     * @return The solution.
+     */
+    public Solution solution() {
+        return this.solution;
+    }
+
+    /**
+     * Returns the solution, every route starts and ends at the depot. Empty routes are
+     * left out.
+     *
+     * @return The routes.
+     */
+    public List<Integer> toList() {
+        return solution.toList();
+    }
+
+    /**
+     * Returns distance between two nodes.
+     *
+     * @param a First node.
+     * @param b Second node.
+     * @return The distance.
+     */
+    public double d(int a, int b) {
+        return dists.distance(a, b);
+    }
+
+    /**
+     * Returns number of routes, including emptied ones.
+     *
+     * @return The number.
+     */
+    public int routeCount() {
+        return routes.size();
+    }
+
+    /**
+     * Returns customers of a route. The array must not be modified.
+     *
+     * @param r The route.
+     * @return The customers.
+     */
+    public int[] customers(int r) {
+        return routes.get(r);
+    }
+
+    /**
+     * Returns number of customers of a route.
+     *
+     * @param r The route.
+     * @return The number.
+     */
+    public int length(int r) {
+        return routes.get(r).length;
+    }
+
+    /**
+     * Returns the stop at a position of a route, where positions -1 and length(r) are
+     * the depot.
+     *
+     * @param r The route.
+     * @param i The position.
+     * @return ID of the node.
+     */
+    public int node(int r, int i) {
+        int[] customers = routes.get(r);
+        return i < 0 || i >= customers.length ? 0 : customers[i];
+    }
+
+    /**
+     * Returns route of a node.
+     *
+     * @param node ID of the node.
+     * @return The route, -1 for the depot and nodes outside the solution.
+     */
+    public int routeOf(int node) {
+        return solution.route(node);
+    }
+
+    /**
+     * Returns position of a customer in its route.
+     *
+     * @param node ID of the customer.
+     * @return The position.
+     */
+    public int position(int node) {
+        return solution.position(node);
+    }
+
+    /**
+     * Returns load of the first i customers of a route.
+     *
+     * @param r The route.
+     * @param i Number of customers.
+     * @return The load.
+     */
+    public double prefixLoad(int r, int i) {
+        return i == 0 ? 0 : solution.prefixLoad(routes.get(r)[i - 1]);
+    }
+
+    /**
+     * Returns load of customers at positions from ... to - 1 of a route.
+     *
+     * @param r The route.
+     * @param from First position.
+     * @param to Position after the last one.
+     * @return The load.
+     */
+    public double segmentLoad(int r, int from, int to) {
+        return prefixLoad(r, to) - prefixLoad(r, from);
+    }
+
+    /**
+     * Returns load of a route.
+     *
+     * @param r The route.
+     * @return The load.
+     */
+    public double load(int r) {
+        return solution.load(r);
+    }
+
+    /**
+     * Returns demand of a node.
+     *
+     * @param node ID of the node.
+     * @return The demand.
+     */
+    public double demand(int node) {
+        return demands[node];
+    }
+
+    /**
+     * Returns capacity of the car.
+     *
+     * @return The capacity.
+     */
+    public double capacity() {
+        return solution.capacity();
+    }
+
+    /**
+     * Returns number of graph nodes, all node IDs are below it.
+     *
+     * @return The number.
+     */
+    public int size() {
+        return dists.size();
+    }
+
+    /**
+     * Returns a version that changes whenever a route is rewritten.
+     *
+     * @param r The route.
+     * @return The version.
+     */
+    public int version(int r) {
+        return versions.get(r);
+    }
+
+    /**
+     * Returns the newest version of any route. Versions only grow, also across calls
+     * of load(), so a route has changed since a moment if its version is above the
+     * stamp taken at that moment.
+     *
+     * @return The version.
+     */
+    public int stamp() {
+        return this.stamp;
+    }
+
+    /**
+     * Returns total cost of all routes.
+     *
+     * @return The cost.
+     */
+    public double cost() {
+        return solution.cost();
+    }
+}
@@ -0,0 +1,66 @@
+package procedures.heuristics.localsearch;
+
+/**
+ * Swap class.
+ *
+ * Exchanges customers u and v, within a route or between two routes.
+ */
+public class Swap implements Operator {
+
+    /** Customer u of the remembered move. */
+    private int first;
+
+    /** Customer v of the remembered move. */
+    private int second;
+
+    @Override
+    public double evaluate(Routes routes, int u, int v, double threshold) {
+        int ru = routes.routeOf(u);
+        int rv = routes.routeOf(v);
+        double du = routes.demand(u);
+        double dv = routes.demand(v);
+        if (ru != rv && (routes.load(ru) - du + dv > routes.capacity() || routes.load(rv) - dv + du > routes.capacity())) {
+            return threshold;
+        }
+        int i = routes.position(u);
+        int j = routes.position(v);
+        int pu = routes.node(ru, i - 1);
+        int nu = routes.node(ru, i + 1);
+        int pv = routes.node(rv, j - 1);
+        int nv = routes.node(rv, j + 1);
+        double delta;
+        if (nu == v && ru == rv) {
+            delta = routes.d(pu, v) + routes.d(v, u) + routes.d(u, nv) - routes.d(pu, u) - routes.d(u, v) - routes.d(v, nv);
+        }
+        else if (nv == u && ru == rv) {
+            delta = routes.d(pv, u) + routes.d(u, v) + routes.d(v, nu) - routes.d(pv, v) - routes.d(v, u) - routes.d(u, nu);
+        }
+        else {
+            delta = routes.d(pu, v) + routes.d(v, nu) + routes.d(pv, u) + routes.d(u, nv)
+                    - routes.d(pu, u) - routes.d(u, nu) - routes.d(pv, v) - routes.d(v, nv);
+        }
+        if (delta < threshold) {
+            first = u;
+            second = v;
+            return delta;
+        }
+        return threshold;
+    }
+
+    @Override
+    public void apply(Routes routes) {
+        int ru = routes.routeOf(first);
+        int rv = routes.routeOf(second);
+        int[] a = routes.customers(ru).clone();
+        a[routes.position(first)] = second;
+        if (ru == rv) {
+            a[routes.position(second)] = first;
+            routes.set(ru, a);
+            return;
+        }
+        int[] b = routes.customers(rv).clone();
+        b[routes.position(second)] = first;
+        routes.set(ru, a);
+        routes.set(rv, b);
+    }
+}
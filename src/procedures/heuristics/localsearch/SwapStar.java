@@ -0,0 +1,170 @@
+package procedures.heuristics.localsearch;
+
+import java.util.Arrays;
+
+/**
+ * SwapStar class.
+ *
+ * Exchanges customers u and v of two routes, but each is inserted at its best
+ * position in the other route instead of the place the other one left. The three
+ * cheapest insertions of a customer into a route are cached with the version of the
+ * route, so one of them is still valid when v is removed and a move is evaluated in
+ * O(1) while the route does not change. The cache is refreshed in time linear in the
+ * route length.
+ */
+public class SwapStar implements Operator {
+
+    /** Number of cached insertions per customer. */
+    private static final int BEST = 3;
+
+    /** Routes that the cache belongs to. */
+    private Routes cached_for;
+
+    /** Route that the insertions of each customer were computed for. */
+    private int[] cached_route = new int[0];
+
+    /** Version of that route when the insertions were computed. */
+    private int[] cached_version;
+
+    /** Stops after which each customer is inserted most cheaply, BEST per customer. */
+    private int[] best_after;
+
+    /** Costs of the insertions in best_after. */
+    private double[] best_cost;
+
+    /** Customer u of the remembered move. */
+    private int first;
+
+    /** Customer v of the remembered move. */
+    private int second;
+
+    /** Stop in the route of v that u is put after, 0 for the start of the route. */
+    private int after_first;
+
+    /** Stop in the route of u that v is put after, 0 for the start of the route. */
+    private int after_second;
+
+    @Override
+    public double evaluate(Routes routes, int u, int v, double threshold) {
+        int ru = routes.routeOf(u);
+        int rv = routes.routeOf(v);
+        double du = routes.demand(u);
+        double dv = routes.demand(v);
+        if (ru == rv || routes.load(ru) - du + dv > routes.capacity() || routes.load(rv) - dv + du > routes.capacity()) {
+            return threshold;
+        }
+        int i = routes.position(u);
+        int j = routes.position(v);
+        int pu = routes.node(ru, i - 1);
+        int nu = routes.node(ru, i + 1);
+        int pv = routes.node(rv, j - 1);
+        int nv = routes.node(rv, j + 1);
+        double removal = routes.d(pu, nu) - routes.d(pu, u) - routes.d(u, nu)
+                + routes.d(pv, nv) - routes.d(pv, v) - routes.d(v, nv);
+        if (removal >= threshold) {
+            return threshold;
+        }
+
+        // u at its best place in v's route, or where v was.
+        int after_u = pv;
+        double insert_u = routes.d(pv, u) + routes.d(u, nv) - routes.d(pv, nv);
+        int k = best(routes, u, rv, v);
+        if (k != -1 && best_cost[k] < insert_u) {
+            after_u = best_after[k];
+            insert_u = best_cost[k];
+        }
+        if (removal + insert_u >= threshold) {
+            return threshold;
+        }
+        int after_v = pu;
+        double insert_v = routes.d(pu, v) + routes.d(v, nu) - routes.d(pu, nu);
+        k = best(routes, v, ru, u);
+        if (k != -1 && best_cost[k] < insert_v) {
+            after_v = best_after[k];
+            insert_v = best_cost[k];
+        }
+        double delta = removal + insert_u + insert_v;
+        if (delta < threshold) {
+            first = u;
+            second = v;
+            after_first = after_u;
+            after_second = after_v;
+            return delta;
+        }
+        return threshold;
+    }
+
+    /**
+     * Returns the cheapest cached insertion of a customer into a route that does not
+     * touch a removed customer.
+     *
+     * @param routes Current routes.
+     * @param node The customer.
+     * @param r The route.
+     * @param removed Customer removed from the route.
+     * @return Index of the insertion in the cache, or -1 if none is valid.
+     */
+    private int best(Routes routes, int node, int r, int removed) {
+        if (cached_for != routes || cached_route.length < routes.size()) {
+            cached_for = routes;
+            int size = routes.size();
+            cached_route = new int[size];
+            Arrays.fill(cached_route, -1);
+            cached_version = new int[size];
+            best_after = new int[size * BEST];
+            best_cost = new double[size * BEST];
+        }
+        if (cached_route[node] != r || cached_version[node] != routes.version(r)) {
+            cache(routes, node, r);
+        }
+        for (int k = node * BEST; k < node * BEST + BEST; k++) {
+            int a = best_after[k];
+            if (a == -1) {
+                return -1;
+            }
+            if (a != removed && routes.node(r, a == 0 ? 0 : routes.position(a) + 1) != removed) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the cheapest insertions of a customer into a route.
+     *
+     * @param routes Current routes.
+     * @param node The customer.
+     * @param r The route.
+     */
+    private void cache(Routes routes, int node, int r) {
+        int base = node * BEST;
+        Arrays.fill(best_after, base, base + BEST, -1);
+        Arrays.fill(best_cost, base, base + BEST, Double.POSITIVE_INFINITY);
+        for (int k = -1; k < routes.length(r); k++) {
+            int a = routes.node(r, k);
+            int b = routes.node(r, k + 1);
+            double cost = routes.d(a, node) + routes.d(node, b) - routes.d(a, b);
+            for (int m = base; m < base + BEST; m++) {
+                if (cost < best_cost[m]) {
+                    System.arraycopy(best_cost, m, best_cost, m + 1, base + BEST - m - 1);
+                    System.arraycopy(best_after, m, best_after, m + 1, base + BEST - m - 1);
+                    best_cost[m] = cost;
+                    best_after[m] = a;
+                    break;
+                }
+            }
+        }
+        cached_route[node] = r;
+        cached_version[node] = routes.version(r);
+    }
+
+    @Override
+    public void apply(Routes routes) {
+        int ru = routes.routeOf(first);
+        int rv = routes.routeOf(second);
+        int[] a = Relocate.insert(Relocate.without(routes.customers(ru), first), after_second, second);
+        int[] b = Relocate.insert(Relocate.without(routes.customers(rv), second), after_first, first);
+        routes.set(ru, a);
+        routes.set(rv, b);
+    }
+}
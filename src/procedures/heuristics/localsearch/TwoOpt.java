@@ -0,0 +1,65 @@
+package procedures.heuristics.localsearch;
+
+/**
+ * TwoOpt class.
+ *
+ * Reverses a part of a route so that customers u and v become neighbours. Distances
+ * must be symmetric, then the reversed part keeps its cost and only the two replaced
+ * edges change.
+ */
+public class TwoOpt implements Operator {
+
+    /** Route of the remembered move. */
+    private int route;
+
+    /** First position of the reversed part. */
+    private int from;
+
+    /** Last position of the reversed part. */
+    private int to;
+
+    @Override
+    public double evaluate(Routes routes, int u, int v, double threshold) {
+        int r = routes.routeOf(u);
+        if (r != routes.routeOf(v)) {
+            return threshold;
+        }
+        int i = Math.min(routes.position(u), routes.position(v));
+        int j = Math.max(routes.position(u), routes.position(v));
+        if (j - i < 2) {
+            return threshold;
+        }
+        int x = routes.node(r, i);
+        int y = routes.node(r, j);
+        int nx = routes.node(r, i + 1);
+        int ny = routes.node(r, j + 1);
+        double delta = routes.d(x, y) + routes.d(nx, ny) - routes.d(x, nx) - routes.d(y, ny);
+        if (delta < threshold) {
+            threshold = delta;
+            route = r;
+            from = i + 1;
+            to = j;
+        }
+        int px = routes.node(r, i - 1);
+        int py = routes.node(r, j - 1);
+        delta = routes.d(px, py) + routes.d(x, y) - routes.d(px, x) - routes.d(py, y);
+        if (delta < threshold) {
+            threshold = delta;
+            route = r;
+            from = i;
+            to = j - 1;
+        }
+        return threshold;
+    }
+
+    @Override
+    public void apply(Routes routes) {
+        int[] customers = routes.customers(route).clone();
+        for (int i = from, j = to; i < j; i++, j--) {
+            int t = customers[i];
+            customers[i] = customers[j];
+            customers[j] = t;
+        }
+        routes.set(route, customers);
+    }
+}
@@ -0,0 +1,111 @@
+package procedures.heuristics.localsearch;
+
+/**
+ * TwoOptStar class.
+ *
+ * Cuts the routes of customers u and v and reconnects them so that u and v become
+ * neighbours, either by exchanging the tails of the routes or by joining head to
+ * head and tail to tail. Loads of the new routes come from prefix loads, so both
+ * variants are evaluated in O(1). The second variant reverses parts of routes and
+ * needs symmetric distances.
+ */
+public class TwoOptStar implements Operator {
+
+    /** Route of customer u in the remembered move. */
+    private int first;
+
+    /** Route of customer v in the remembered move. */
+    private int second;
+
+    /** Number of customers kept at the head of the first route. */
+    private int cut_first;
+
+    /** Number of customers kept at the head of the second route. */
+    private int cut_second;
+
+    /** True if heads are joined head to head. */
+    private boolean reversed;
+
+    @Override
+    public double evaluate(Routes routes, int u, int v, double threshold) {
+        int ru = routes.routeOf(u);
+        int rv = routes.routeOf(v);
+        if (ru == rv) {
+            return threshold;
+        }
+        double capacity = routes.capacity();
+        int i = routes.position(u);
+        int j = routes.position(v);
+        int nu = routes.node(ru, i + 1);
+        int pv = routes.node(rv, j - 1);
+        int nv = routes.node(rv, j + 1);
+        double head_u = routes.prefixLoad(ru, i + 1);
+        double tail_u = routes.load(ru) - head_u;
+
+        // u followed by v and the rest of its route, v's head followed by u's tail.
+        double head_v = routes.prefixLoad(rv, j);
+        double tail_v = routes.load(rv) - head_v;
+        if (head_u + tail_v <= capacity && head_v + tail_u <= capacity) {
+            double delta = routes.d(u, v) + routes.d(pv, nu) - routes.d(u, nu) - routes.d(pv, v);
+            if (delta < threshold) {
+                threshold = delta;
+                remember(ru, rv, i + 1, j, false);
+            }
+        }
+
+        // u followed by v and its head backwards, u's tail backwards followed by v's tail.
+        head_v = routes.prefixLoad(rv, j + 1);
+        tail_v = routes.load(rv) - head_v;
+        if (head_u + head_v <= capacity && tail_u + tail_v <= capacity) {
+            double delta = routes.d(u, v) + routes.d(nu, nv) - routes.d(u, nu) - routes.d(v, nv);
+            if (delta < threshold) {
+                threshold = delta;
+                remember(ru, rv, i + 1, j + 1, true);
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * Remembers a move.
+     *
+     * @param ru Route of u.
+     * @param rv Route of v.
+     * @param cut_u Number of customers kept at the head of u's route.
+     * @param cut_v Number of customers kept at the head of v's route.
+     * @param reversed True if heads are joined head to head.
+     */
+    private void remember(int ru, int rv, int cut_u, int cut_v, boolean reversed) {
+        this.first = ru;
+        this.second = rv;
+        this.cut_first = cut_u;
+        this.cut_second = cut_v;
+        this.reversed = reversed;
+    }
+
+    @Override
+    public void apply(Routes routes) {
+        int[] a = routes.customers(first);
+        int[] b = routes.customers(second);
+        int[] x = new int[reversed ? cut_first + cut_second : cut_first + b.length - cut_second];
+        int[] y = new int[a.length + b.length - x.length];
+        System.arraycopy(a, 0, x, 0, cut_first);
+        if (reversed) {
+            for (int k = 0; k < cut_second; k++) {
+                x[cut_first + k] = b[cut_second - 1 - k];
+            }
+            int tail = a.length - cut_first;
+            for (int k = 0; k < tail; k++) {
+                y[k] = a[a.length - 1 - k];
+            }
+            System.arraycopy(b, cut_second, y, tail, b.length - cut_second);
+        }
+        else {
+            System.arraycopy(b, cut_second, x, cut_first, b.length - cut_second);
+            System.arraycopy(b, 0, y, 0, cut_second);
+            System.arraycopy(a, cut_first, y, cut_second, a.length - cut_first);
+        }
+        routes.set(first, x);
+        routes.set(second, y);
+    }
+}
@@ -2,8 +2,10 @@ package procedures.neuralnetwork;
 
 import procedures.grapher.Graph;
 import procedures.grapher.Node;
+import utilities.CandidateLists;
 import utilities.FloydWarshall;
 import utilities.Matrix;
+import utilities.Solution;
 
 import java.io.PrintWriter;
 import java.util.*;
@@ -48,6 +50,9 @@ public class GreedyDecoder01 {
 
     private final FloydWarshall floydWarshall;
 
+    /** Nearest customers of each node, that are scored first, or null. */
+    private CandidateLists candidates;
+
     /**
      * Constructor for class GreedyDecoder.
      *
@@ -64,25 +69,63 @@ public class GreedyDecoder01 {
         this.floydWarshall = fw;
         cleanliness = new double[graph.size()];
         for (int i = 0; i < graph.size(); i++) {
-            cleanliness[i] = graph.getNodes().get(i).demand();
+            cleanliness[i] = graph.node(i).demand();
         }
     }
 
+    /**
+     * Sets candidate lists. The next node is then chosen among unvisited candidates of
+     * the current node that fit, and all nodes are only scored when none does.
+     *
+     * @param candidates The lists, or null to score all nodes.
+     */
+    public void setCandidates(CandidateLists candidates) {
+        this.candidates = candidates;
+    }
+
     /**
      * Function that performs the first step of decoding.
      *
      * Computes the intermediate solution.
      */
     public void decode() {
+        decode(null);
+    }
+
+    /**
+     * Decodes the customers that a solution does not serve.
+     *
+     * Routes of the solution are kept as they are and the remaining customers are
+     * decoded into new routes after them, for example to complete a partial solution.
+     *
+     * @param start The solution, or null to decode all customers.
+     */
+    public void decode(Solution start) {
         solution = new LinkedList<>();
         visited = new HashMap<>();
+        for (int i = 0; i < graph.size(); i++) {
+            cleanliness[i] = graph.node(i).demand();
+        }
         Node current = graph.depot();
         visited.put(current.id(), current);
         solution.add(0);
+        if (start != null) {
+            for (int r = 0; r < start.routes(); r++) {
+                if (start.count(r) == 0) {
+                    continue;
+                }
+                for (int node : start.customers(r)) {
+                    visited.put(node, graph.node(node));
+                    solution.add(node);
+                    cleanliness[node] = 0;
+                }
+                solution.add(0);
+            }
+        }
         while (notClean()) {
             double weight = 0;
             Node next = getNext(0, weight);
-            weight += graph.getNodes().get(next.id()).demand();
+            weight += graph.node(next.id()).demand();
             while (weight <= CAPACITY) {
                 visited.put(next.id(), next);
                 solution.add(next.id());
@@ -92,7 +135,7 @@ public class GreedyDecoder01 {
                 if (next == null) {
                     break;
                 }
-                weight += graph.getNodes().get(next.id()).demand();
+                weight += graph.node(next.id()).demand();
             }
             solution.add(0);
         }
@@ -125,13 +168,42 @@ public class GreedyDecoder01 {
         Matrix output = autoEncoder.process(prev_id);
         double max = Double.MIN_VALUE;
         int id = -1;
+        if (candidates != null) {
+            for (int c = 0; c < candidates.k(); c++) {
+                int i = candidates.get(prev_id, c);
+                if (i == -1) {
+                    break;
+                }
+                if (max < output.get(i, 0) && !visited.containsKey(i) && weight + graph.node(i).demand() <= CAPACITY) {
+                    max = output.get(i, 0);
+                    id = i;
+                }
+            }
+            if (id != -1) {
+                return graph.node(id);
+            }
+        }
         for (int i = 0; i < output.rows(); i++) {
-            if (max < output.get(i, 0) && !visited.containsKey(i) && weight + graph.getNodes().get(i).demand() <= CAPACITY) {
+            if (max < output.get(i, 0) && !visited.containsKey(i) && weight + graph.node(i).demand() <= CAPACITY) {
                 max = output.get(i, 0);
                 id = i;
             }
         }
-        return graph.getNodes().get(id);
+        return graph.node(id);
+    }
+
+    /**
+     * Returns decoded routes as a Solution, before shortest paths are expanded.
+     * Customers are in the order the printed path serves them, see
+     * FloydWarshall.servedRoutes().
+     *
+     * @return The solution.
+     */
+    public Solution toSolution() {
+        if (solution == null) {
+            throw new IllegalStateException("There is no solution before decoding.");
+        }
+        return Solution.of(graph, floydWarshall.getPaths(), CAPACITY, floydWarshall.servedRoutes(solution, CAPACITY));
     }
 
     /**
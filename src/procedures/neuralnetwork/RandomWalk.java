@@ -1,6 +1,6 @@
 package procedures.neuralnetwork;
 
-import procedures.grapher.Edge;
+import procedures.grapher.CompressedGraph;
 import procedures.grapher.Graph;
 import procedures.grapher.Node;
 import utilities.Utilities;
@@ -60,11 +60,12 @@ public class RandomWalk {
      * @return List of Lists.
      */
     public List<List<Integer>> walk() {
+        CompressedGraph csr = graph.csr();
+        double[] probabilities = new double[maxDegree(csr)];
         List<List<Integer>> walks = new LinkedList<>();
         for (int iter = 0; iter < WALKS_PER_NODE; iter++) {
-            for (Node node : graph.getNodes().values()) {
-                List<Integer> walk = singleWalk(node);
-                walks.add(walk);
+            for (int node = 0; node < csr.size(); node++) {
+                walks.add(singleWalk(csr, node, probabilities));
             }
         }
         return walks;
@@ -77,12 +78,25 @@ public class RandomWalk {
      * @return List of integers representing a single walk.
      */
     public List<Integer> singleWalk(Node node) {
+        CompressedGraph csr = graph.csr();
+        return singleWalk(csr, node.id(), new double[maxDegree(csr)]);
+    }
+
+    /**
+     * Performs a single walk over the compressed graph.
+     *
+     * @param csr Compressed graph.
+     * @param node ID of starting node.
+     * @param probabilities Buffer for neighbour weights.
+     * @return List of integers representing a single walk.
+     */
+    private List<Integer> singleWalk(CompressedGraph csr, int node, double[] probabilities) {
         List<Integer> walk = new LinkedList<>();
-        Node current = node;
-        Node prev = graph.depot();
+        int current = node;
+        int prev = graph.depot().id();
         for (int i = 0; i < WALK_LENGTH; i++) {
-            Node next = getNeighbour(current, prev);
-            walk.add(next.id());
+            int next = getNeighbour(csr, current, prev, probabilities);
+            walk.add(next);
             prev = current;
             current = next;
         }
@@ -100,21 +114,59 @@ public class RandomWalk {
      * @return Next node.
      */
     public Node getNeighbour(Node current, Node prev) {
-        List<Node> neighbours = new LinkedList<>();
-        List<Double> probabilities = new LinkedList<>();
-        for (Edge edge : current.getEdges().values()) {
-            neighbours.add(edge.to());
-            if (prev.isNeighbour(edge.to())) {
-                probabilities.add(1.0 / edge.weight());
+        CompressedGraph csr = graph.csr();
+        int next = getNeighbour(csr, current.id(), prev.id(), new double[maxDegree(csr)]);
+        return graph.node(next);
+    }
+
+    /**
+     * Samples a neighbour over the compressed graph.
+     *
+     * @param csr Compressed graph.
+     * @param current ID of current node.
+     * @param prev ID of last visited node.
+     * @param probabilities Buffer for neighbour weights.
+     * @return ID of next node.
+     */
+    private int getNeighbour(CompressedGraph csr, int current, int prev, double[] probabilities) {
+        int begin = csr.begin(current);
+        int degree = csr.end(current) - begin;
+        double sum = 0;
+        for (int i = 0; i < degree; i++) {
+            int to = csr.target(begin + i);
+            double weight = csr.weight(begin + i);
+            if (csr.isNeighbour(prev, to)) {
+                probabilities[i] = 1.0 / weight;
             }
-            else if (prev.id() == edge.to().id()) {
-                probabilities.add(1 / (P * edge.weight()));
+            else if (prev == to) {
+                probabilities[i] = 1 / (P * weight);
             }
             else {
-                probabilities.add(1 / (Q * edge.weight()));
+                probabilities[i] = 1 / (Q * weight);
             }
+            sum += probabilities[i];
+        }
+        double x = ut.randomDouble(0, 1) * sum;
+        int i = 0;
+        double prefix = probabilities[0];
+        while (x > prefix && i < degree - 1) {
+            prefix += probabilities[++i];
+        }
+        return csr.target(begin + i);
+    }
+
+    /**
+     * Returns the largest number of edges of a single node.
+     *
+     * @param csr Compressed graph.
+     * @return The number.
+     */
+    private static int maxDegree(CompressedGraph csr) {
+        int max = 1;
+        for (int node = 0; node < csr.size(); node++) {
+            max = Math.max(max, csr.end(node) - csr.begin(node));
         }
-        return neighbours.get(getRandomIndex(probabilities));
+        return max;
     }
 
     /**
@@ -0,0 +1,173 @@
+package utilities;
+
+import procedures.grapher.CompressedGraph;
+
+import java.util.Arrays;
+
+/**
+ * ArrayDistanceMatrix class.
+ *
+ * Stores distances and next hops in two flat row-major arrays, so cell [x][y] is
+ * found at index x * size + y. Compared to a 2D-array of cell objects this keeps
+ * a whole row in contiguous memory and costs exactly 12 bytes per pair.
+ */
+public class ArrayDistanceMatrix implements DistanceMatrix {
+
+    /** Number of nodes. */
+    private final int size;
+
+    /** Distances of currently stored paths. */
+    private final double[] distances;
+
+    /** IDs of the next nodes, to reconstruct the paths. */
+    private final int[] next;
+
+    /**
+     * ArrayDistanceMatrix constructor.
+     *
+     * Constructs a matrix where every pair is unreachable.
+     *
+     * @param size Number of nodes.
+     */
+    public ArrayDistanceMatrix(int size) {
+        if ((long) size * size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Matrix of " + size + " nodes does not fit into an array.");
+        }
+        this.size = size;
+        this.distances = new double[size * size];
+        this.next = new int[size * size];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        Arrays.fill(next, -1);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public double distance(int from, int to) {
+        return distances[from * size + to];
+    }
+
+    @Override
+    public int next(int from, int to) {
+        return next[from * size + to];
+    }
+
+    /**
+     * Sets both values of a single cell.
+     *
+     * @param from Index of starting node.
+     * @param to Index of target node.
+     * @param id Value for next.
+     * @param d Value for distance.
+     */
+    public void set(int from, int to, int id, double d) {
+        distances[from * size + to] = d;
+        next[from * size + to] = id;
+    }
+
+    /**
+     * Updates all paths after the length of the undirected edge u-v decreased.
+     *
+     * A new shortest path uses the edge at most once, so it is enough to compare
+     * every stored path i-j with i-u-v-j and i-v-u-j. Takes O(V^2) time.
+     *
+     * @param u Index of first node.
+     * @param v Index of second node.
+     * @param weight New length of the edge.
+     */
+    void decreaseEdge(int u, int v, double weight) {
+        double[] to_u = new double[size];
+        double[] to_v = new double[size];
+        int[] next_u = new int[size];
+        int[] next_v = new int[size];
+        for (int i = 0; i < size; i++) {
+            to_u[i] = distances[i * size + u];
+            to_v[i] = distances[i * size + v];
+            next_u[i] = i == u ? v : next[i * size + u];
+            next_v[i] = i == v ? u : next[i * size + v];
+        }
+        double[] from_u = Arrays.copyOfRange(distances, u * size, (u + 1) * size);
+        double[] from_v = Arrays.copyOfRange(distances, v * size, (v + 1) * size);
+        for (int i = 0; i < size; i++) {
+            int row_i = i * size;
+            for (int j = 0; j < size; j++) {
+                if (to_u[i] != Double.MAX_VALUE && from_v[j] != Double.MAX_VALUE) {
+                    double d = to_u[i] + weight + from_v[j];
+                    if (distances[row_i + j] > d) {
+                        distances[row_i + j] = d;
+                        next[row_i + j] = next_u[i];
+                    }
+                }
+                if (to_v[i] != Double.MAX_VALUE && from_u[j] != Double.MAX_VALUE) {
+                    double d = to_v[i] + weight + from_u[j];
+                    if (distances[row_i + j] > d) {
+                        distances[row_i + j] = d;
+                        next[row_i + j] = next_v[i];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates all paths after the length of the undirected edge u-v increased.
+     *
+     * Only rows whose shortest path tree may contain the edge are recomputed, which
+     * are the rows where the old edge length closes the gap between u and v.
+     *
+     * @param graph Graph edges, already holding the new length.
+     * @param u Index of first node.
+     * @param v Index of second node.
+     * @param old_weight Length of the edge before the change.
+     * @return Number of recomputed rows.
+     */
+    int increaseEdge(CompressedGraph graph, int u, int v, double old_weight) {
+        Dijkstra dijkstra = new Dijkstra(graph);
+        int rows = 0;
+        for (int i = 0; i < size; i++) {
+            double to_u = distances[i * size + u];
+            double to_v = distances[i * size + v];
+            if (usesEdge(to_u, old_weight, to_v) || usesEdge(to_v, old_weight, to_u)) {
+                dijkstra.run(i, distances, next, i * size);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns true if a shortest path may reach the second node over the edge.
+     *
+     * @param first Distance to the node before the edge.
+     * @param weight Length of the edge.
+     * @param second Distance to the node after the edge.
+     * @return The boolean.
+     */
+    private static boolean usesEdge(double first, double weight, double second) {
+        if (first == Double.MAX_VALUE || second == Double.MAX_VALUE) {
+            return false;
+        }
+        return first + weight <= second + 1e-9 * Math.max(1, second);
+    }
+
+    /**
+     * Returns the backing array of distances.
+     *
+     * @return The array.
+     */
+    double[] distances() {
+        return this.distances;
+    }
+
+    /**
+     * Returns the backing array of next hops.
+     *
+     * @return The array.
+     */
+    int[] nextHops() {
+        return this.next;
+    }
+}
@@ -0,0 +1,224 @@
+package utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * BlockedFloydWarshall class.
+ *
+ * Performs the Floyd-Warshall algorithm on a tiled matrix. The matrix is split into
+ * square blocks and for every diagonal block k the computation runs in three dependent
+ * phases: the diagonal block itself, the blocks in row and column k, and all remaining
+ * blocks. Blocks within the last two phases are independent and are processed in
+ * parallel on a ForkJoinPool, while each block is small enough to stay in cache.
+ *
+ * Distances and next hops are the same as those of the plain loop. The plain loop
+ * relaxes through node k with row k and column k as they were before step k, while
+ * the diagonal, row and column blocks finish all steps of block k before the other
+ * blocks read them. Every block therefore copies row k and column k into the step
+ * buffers when it reaches step k and all blocks relax from these copies, so ties
+ * between equally long paths are resolved by the same comparisons as in the plain
+ * loop.
+ */
+public class BlockedFloydWarshall {
+
+    /** Default edge length of a block. */
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    /** Edge length of a block. */
+    private final int block_size;
+
+    /** Pool that executes block updates. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for BlockedFloydWarshall object.
+     *
+     * @param block_size Edge length of a block.
+     * @param pool Pool that executes block updates.
+     */
+    public BlockedFloydWarshall(int block_size, ForkJoinPool pool) {
+        if (block_size < 1) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        this.block_size = block_size;
+        this.pool = pool;
+    }
+
+    /**
+     * Relaxes all paths of an initialized matrix in place.
+     *
+     * Diagonal must hold zero distances and direct edges must already be stored.
+     *
+     * @param matrix The matrix.
+     */
+    public void run(ArrayDistanceMatrix matrix) {
+        int size = matrix.size();
+        int blocks = (size + block_size - 1) / block_size;
+        Steps steps = new Steps(matrix.distances(), matrix.nextHops(), size);
+        for (int k = 0; k < blocks; k++) {
+            new BlockTask(steps, k, k, k).compute();
+            List<BlockTask> tasks = new ArrayList<>();
+            for (int b = 0; b < blocks; b++) {
+                if (b != k) {
+                    tasks.add(new BlockTask(steps, k, b, k));
+                    tasks.add(new BlockTask(steps, b, k, k));
+                }
+            }
+            invoke(tasks);
+            tasks = new ArrayList<>();
+            for (int i = 0; i < blocks; i++) {
+                for (int j = 0; j < blocks; j++) {
+                    if (i != k && j != k) {
+                        tasks.add(new BlockTask(steps, i, j, k));
+                    }
+                }
+            }
+            invoke(tasks);
+        }
+    }
+
+    /**
+     * Runs independent block updates on the pool and waits for all of them.
+     *
+     * @param tasks List of block updates.
+     */
+    private void invoke(List<BlockTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Steps class.
+     *
+     * The matrix and copies of the rows and columns of the current diagonal block, as
+     * they were at the step of the plain loop that relaxes through them.
+     */
+    private class Steps {
+
+        /** Distances of the whole matrix, row-major. */
+        private final double[] distances;
+
+        /** Next hops of the whole matrix, row-major. */
+        private final int[] next;
+
+        /** Number of nodes. */
+        private final int size;
+
+        /** Distances from every node to the nodes of the diagonal block, by node and offset in the block. */
+        private final double[] column_distances;
+
+        /** Next hops from every node to the nodes of the diagonal block, by node and offset in the block. */
+        private final int[] column_next;
+
+        /** Distances from the nodes of the diagonal block to every node, by offset in the block and node. */
+        private final double[] row_distances;
+
+        /**
+         * Constructor for Steps object.
+         *
+         * @param distances Distances of the whole matrix.
+         * @param next Next hops of the whole matrix.
+         * @param size Number of nodes.
+         */
+        Steps(double[] distances, int[] next, int size) {
+            this.distances = distances;
+            this.next = next;
+            this.size = size;
+            this.column_distances = new double[size * block_size];
+            this.column_next = new int[size * block_size];
+            this.row_distances = new double[block_size * size];
+        }
+    }
+
+    /**
+     * BlockTask class.
+     *
+     * Relaxes paths of block [row][column] through nodes of diagonal block k.
+     */
+    private class BlockTask extends RecursiveAction {
+
+        /** Version of the serialized form, tasks are never serialized. */
+        private static final long serialVersionUID = 1L;
+
+        /** Matrix and step buffers. */
+        private final Steps steps;
+
+        /** Block row of the updated block. */
+        private final int row;
+
+        /** Block column of the updated block. */
+        private final int column;
+
+        /** Index of the diagonal block whose nodes are intermediates. */
+        private final int k;
+
+        /**
+         * Constructor for BlockTask object.
+         *
+         * @param steps Matrix and step buffers.
+         * @param row Block row of the updated block.
+         * @param column Block column of the updated block.
+         * @param k Index of the diagonal block.
+         */
+        BlockTask(Steps steps, int row, int column, int k) {
+            this.steps = steps;
+            this.row = row;
+            this.column = column;
+            this.k = k;
+        }
+
+        @Override
+        protected void compute() {
+            double[] distances = steps.distances;
+            int[] next = steps.next;
+            int size = steps.size;
+            int i_start = row * block_size;
+            int i_end = Math.min(size, i_start + block_size);
+            int j_start = column * block_size;
+            int j_end = Math.min(size, j_start + block_size);
+            int k_start = k * block_size;
+            int k_end = Math.min(size, k_start + block_size);
+            for (int kk = k_start; kk < k_end; kk++) {
+                int offset = kk - k_start;
+                int row_k = offset * size;
+                // Step kk does not change row kk and column kk, so blocks that hold them
+                // copy them now for the blocks that are relaxed later.
+                if (column == k) {
+                    for (int i = i_start; i < i_end; i++) {
+                        steps.column_distances[i * block_size + offset] = distances[i * size + kk];
+                        steps.column_next[i * block_size + offset] = next[i * size + kk];
+                    }
+                }
+                if (row == k) {
+                    System.arraycopy(distances, kk * size + j_start, steps.row_distances, row_k + j_start, j_end - j_start);
+                }
+                for (int i = i_start; i < i_end; i++) {
+                    int row_i = i * size;
+                    double through_k = steps.column_distances[i * block_size + offset];
+                    if (through_k == Double.MAX_VALUE) {
+                        continue;
+                    }
+                    int next_k = steps.column_next[i * block_size + offset];
+                    for (int j = j_start; j < j_end; j++) {
+                        double d = through_k + steps.row_distances[row_k + j];
+                        if (distances[row_i + j] > d) {
+                            distances[row_i + j] = d;
+                            next[row_i + j] = next_k;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
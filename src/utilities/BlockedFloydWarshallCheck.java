@@ -0,0 +1,74 @@
+package utilities;
+
+import procedures.grapher.Graph;
+
+/**
+ * BlockedFloydWarshallCheck class.
+ *
+ * Compares the tiled algorithm with the plain loop on random graphs with edge weights
+ * of 1 to 3, where most pairs are joined by several shortest paths of equal length.
+ * Every distance and every next hop must be the same for every block size. Arguments
+ * are optionally the number of nodes (default 150), the number of graphs (default 10)
+ * and the first seed (default 1).
+ */
+public class BlockedFloydWarshallCheck {
+
+    /** Block sizes that are checked, including ones that do not divide the size. */
+    private static final int[] BLOCK_SIZES = {1, 7, 16, 64, 1000};
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 150;
+        int graphs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        for (int g = 0; g < graphs; g++) {
+            Graph graph = tieGraph(size, new Utilities(seed + g));
+            FloydWarshall plain = new FloydWarshall(graph);
+            plain.calculateDense();
+            for (int block_size : BLOCK_SIZES) {
+                FloydWarshall blocked = new FloydWarshall(graph);
+                blocked.calculate(block_size);
+                compare(plain.getPaths(), blocked.getPaths(), block_size);
+            }
+        }
+        System.out.printf("%d graphs of %d nodes: distances and next hops identical for all block sizes%n", graphs, size);
+    }
+
+    /**
+     * Creates a connected graph with small integer edge weights.
+     *
+     * @param size Number of nodes.
+     * @param ut Utilities object.
+     * @return The graph.
+     */
+    private static Graph tieGraph(int size, Utilities ut) {
+        Graph graph = new Graph(size, 100, ut);
+        for (int i = 1; i < size; i++) {
+            graph.connect(i, ut.randomInt(i), 1 + ut.randomInt(3));
+        }
+        for (int e = 0; e < 2 * size; e++) {
+            int from = ut.randomInt(size);
+            int to = ut.randomInt(size);
+            if (from != to && graph.edge(from, to) == null) {
+                graph.connect(from, to, 1 + ut.randomInt(3));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Throws if two matrices differ in any distance or next hop.
+     *
+     * @param expected Matrix of the plain loop.
+     * @param actual Matrix of the tiled algorithm.
+     * @param block_size Edge length of a block.
+     */
+    private static void compare(DistanceMatrix expected, DistanceMatrix actual, int block_size) {
+        for (int i = 0; i < expected.size(); i++) {
+            for (int j = 0; j < expected.size(); j++) {
+                if (expected.distance(i, j) != actual.distance(i, j) || expected.next(i, j) != actual.next(i, j)) {
+                    throw new RuntimeException("Block size " + block_size + " differs at " + i + " -> " + j + ".");
+                }
+            }
+        }
+    }
+}
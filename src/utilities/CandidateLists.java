@@ -0,0 +1,208 @@
+package utilities;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * CandidateLists class.
+ *
+ * For every node, stores its k closest customers by shortest-path distance, closest
+ * first, in one flat array of V * k entries. The depot (node 0) and the node itself
+ * are never candidates. Lists of nodes with fewer than k reachable customers are
+ * padded with -1.
+ *
+ * Solvers that restrict moves to these lists evaluate O(V * k) moves instead of
+ * O(V^2). A list is a prefix of all customers ordered by distance and then by id, so
+ * the first candidate that satisfies a condition is also the nearest customer that
+ * satisfies it.
+ */
+public class CandidateLists {
+
+    /** Number of candidates per node. */
+    private final int k;
+
+    /** Candidates of node u are at [u * k, u * k + k). */
+    private final int[] candidates;
+
+    /**
+     * Constructor for CandidateLists object.
+     *
+     * @param k Number of candidates per node.
+     * @param candidates Flat array of candidates.
+     */
+    private CandidateLists(int k, int[] candidates) {
+        this.k = k;
+        this.candidates = candidates;
+    }
+
+    /**
+     * Computes candidate lists from a distance matrix. Euclidean matrices are queried
+     * through a k-d tree, others are scanned row by row. Rows are computed in parallel.
+     *
+     * @param matrix Shortest path distances.
+     * @param k Number of candidates per node.
+     * @return The lists.
+     */
+    public static CandidateLists of(DistanceMatrix matrix, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("At least one candidate is needed.");
+        }
+        int size = matrix.size();
+        int[] candidates = new int[size * k];
+        Arrays.fill(candidates, -1);
+        if (matrix instanceof EuclideanDistanceMatrix) {
+            KdTree tree = new KdTree((EuclideanDistanceMatrix) matrix);
+            IntStream.range(0, size).parallel().forEach(u -> {
+                int[] nearest = new int[k + 1];
+                int count = tree.nearest(u, k + 1, nearest, 0);
+                for (int i = 0, c = 0; i < count && c < k; i++) {
+                    if (nearest[i] != 0) {
+                        candidates[u * k + c++] = nearest[i];
+                    }
+                }
+            });
+        }
+        else {
+            IntStream.range(0, size).parallel().forEach(u -> row(matrix, u, k, candidates));
+        }
+        return new CandidateLists(k, candidates);
+    }
+
+    /**
+     * Stores the k closest reachable customers of one node, using a max-heap of the
+     * best ones seen so far.
+     *
+     * @param matrix Shortest path distances.
+     * @param u ID of the node.
+     * @param k Number of candidates.
+     * @param candidates Flat array of candidates.
+     */
+    private static void row(DistanceMatrix matrix, int u, int k, int[] candidates) {
+        int[] heap = new int[k];
+        double[] distances = new double[k];
+        int count = 0;
+        for (int v = 1; v < matrix.size(); v++) {
+            double d = matrix.distance(u, v);
+            if (v == u || d == Double.MAX_VALUE) {
+                continue;
+            }
+            if (count < k) {
+                int i = count++;
+                while (i > 0 && before(distances[(i - 1) / 2], heap[(i - 1) / 2], d, v)) {
+                    heap[i] = heap[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = v;
+                distances[i] = d;
+            }
+            else if (before(d, v, distances[0], heap[0])) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= k) {
+                        break;
+                    }
+                    if (child + 1 < k && before(distances[child], heap[child], distances[child + 1], heap[child + 1])) {
+                        child++;
+                    }
+                    if (!before(d, v, distances[child], heap[child])) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                heap[i] = v;
+                distances[i] = d;
+            }
+        }
+        // Insertion sort of the heap, closest first; k is small and nodes are distinct.
+        for (int i = 1; i < count; i++) {
+            int node = heap[i];
+            double distance = distances[i];
+            int j = i;
+            while (j > 0 && before(distance, node, distances[j - 1], heap[j - 1])) {
+                heap[j] = heap[j - 1];
+                distances[j] = distances[j - 1];
+                j--;
+            }
+            heap[j] = node;
+            distances[j] = distance;
+        }
+        System.arraycopy(heap, 0, candidates, u * k, count);
+    }
+
+    /**
+     * Returns true if the first node comes before the second one, by distance and then
+     * by id.
+     *
+     * @param d1 Distance of the first node.
+     * @param n1 ID of the first node.
+     * @param d2 Distance of the second node.
+     * @param n2 ID of the second node.
+     * @return The boolean.
+     */
+    private static boolean before(double d1, int n1, double d2, int n2) {
+        return d1 < d2 || (d1 == d2 && n1 < n2);
+    }
+
+    /**
+     * Returns number of candidates per node.
+     *
+     * @return The number.
+     */
+    public int k() {
+        return this.k;
+    }
+
+    /**
+     * Returns a candidate of a node.
+     *
+     * @param node ID of the node.
+     * @param i Rank of the candidate, 0 is the closest.
+     * @return ID of the candidate, or -1 past the end of a short list.
+     */
+    public int get(int node, int i) {
+        return candidates[node * k + i];
+    }
+
+    /**
+     * Returns number of candidates of a node.
+     *
+     * @param node ID of the node.
+     * @return The number, k unless fewer customers are reachable.
+     */
+    public int count(int node) {
+        int count = 0;
+        while (count < k && candidates[node * k + count] != -1) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns true if 'to' is a candidate of 'from'.
+     *
+     * @param from ID of the node whose list is searched.
+     * @param to ID of the candidate.
+     * @return The boolean.
+     */
+    public boolean contains(int from, int to) {
+        for (int i = from * k; i < from * k + k; i++) {
+            if (candidates[i] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the flat array of all lists. It must not be modified.
+     *
+     * @return The array.
+     */
+    public int[] candidates() {
+        return this.candidates;
+    }
+}
@@ -0,0 +1,197 @@
+package utilities;
+
+import procedures.grapher.CompressedGraph;
+
+import java.util.Arrays;
+
+/**
+ * CompactDistanceMatrix class.
+ *
+ * Stores distances as floats and next hops as unsigned 16-bit values in flat
+ * row-major arrays, which takes 6 bytes per pair instead of 12. Float precision is
+ * ample for edge lengths in the hundreds, and next hops are kept exactly, so paths
+ * are the same as in a full matrix. Graphs of up to MAX_SIZE nodes are supported,
+ * the most whose V x V cells still fit into one Java array; 16-bit next hops would
+ * allow more.
+ */
+public class CompactDistanceMatrix implements DistanceMatrix {
+
+    /** Maximum number of nodes, the largest size with size * size <= Integer.MAX_VALUE. */
+    public static final int MAX_SIZE = 46340;
+
+    /** Relative tolerance when comparing float distances of stored paths. */
+    private static final double TOLERANCE = 1e-6;
+
+    /** Stored next hop of unreachable pairs, never a node ID because of MAX_SIZE. */
+    private static final char NONE = Character.MAX_VALUE;
+
+    /** Number of nodes. */
+    private final int size;
+
+    /** Distances of currently stored paths, infinity if unreachable. */
+    private final float[] distances;
+
+    /** IDs of the next nodes, to reconstruct the paths. */
+    private final char[] next;
+
+    /**
+     * CompactDistanceMatrix constructor.
+     *
+     * Constructs a matrix where every pair is unreachable.
+     *
+     * @param size Number of nodes.
+     */
+    public CompactDistanceMatrix(int size) {
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Compact matrix supports at most " + MAX_SIZE + " nodes.");
+        }
+        this.size = size;
+        this.distances = new float[size * size];
+        this.next = new char[size * size];
+        Arrays.fill(distances, Float.POSITIVE_INFINITY);
+        Arrays.fill(next, NONE);
+    }
+
+    /**
+     * Returns a compact copy of a matrix.
+     *
+     * @param matrix The matrix.
+     * @return The copy.
+     */
+    public static CompactDistanceMatrix of(DistanceMatrix matrix) {
+        CompactDistanceMatrix compact = new CompactDistanceMatrix(matrix.size());
+        double[] distances = new double[matrix.size()];
+        int[] next = new int[matrix.size()];
+        for (int i = 0; i < matrix.size(); i++) {
+            for (int j = 0; j < matrix.size(); j++) {
+                distances[j] = matrix.distance(i, j);
+                next[j] = matrix.next(i, j);
+            }
+            compact.setRow(i, distances, next);
+        }
+        return compact;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public double distance(int from, int to) {
+        float d = distances[from * size + to];
+        return d == Float.POSITIVE_INFINITY ? Double.MAX_VALUE : d;
+    }
+
+    @Override
+    public int next(int from, int to) {
+        char id = next[from * size + to];
+        return id == NONE ? -1 : id;
+    }
+
+    /**
+     * Stores a whole row given in full precision.
+     *
+     * @param row Index of the row.
+     * @param distances Distances of the row, Double.MAX_VALUE if unreachable.
+     * @param next Next hops of the row, -1 if unreachable.
+     */
+    public void setRow(int row, double[] distances, int[] next) {
+        int offset = row * size;
+        for (int j = 0; j < size; j++) {
+            this.distances[offset + j] = distances[j] == Double.MAX_VALUE ? Float.POSITIVE_INFINITY : (float) distances[j];
+            this.next[offset + j] = next[j] == -1 ? NONE : (char) next[j];
+        }
+    }
+
+    /**
+     * Updates all paths after the length of the undirected edge u-v decreased.
+     *
+     * Works like ArrayDistanceMatrix.decreaseEdge(), comparing every stored path i-j
+     * with i-u-v-j and i-v-u-j in O(V^2) time, without a full-precision copy.
+     *
+     * @param u Index of first node.
+     * @param v Index of second node.
+     * @param weight New length of the edge.
+     */
+    void decreaseEdge(int u, int v, double weight) {
+        double[] to_u = new double[size];
+        double[] to_v = new double[size];
+        int[] next_u = new int[size];
+        int[] next_v = new int[size];
+        double[] from_u = new double[size];
+        double[] from_v = new double[size];
+        for (int i = 0; i < size; i++) {
+            to_u[i] = distance(i, u);
+            to_v[i] = distance(i, v);
+            next_u[i] = i == u ? v : next(i, u);
+            next_v[i] = i == v ? u : next(i, v);
+            from_u[i] = distance(u, i);
+            from_v[i] = distance(v, i);
+        }
+        for (int i = 0; i < size; i++) {
+            int row_i = i * size;
+            for (int j = 0; j < size; j++) {
+                if (to_u[i] != Double.MAX_VALUE && from_v[j] != Double.MAX_VALUE) {
+                    double d = to_u[i] + weight + from_v[j];
+                    if (distances[row_i + j] > d) {
+                        distances[row_i + j] = (float) d;
+                        next[row_i + j] = (char) next_u[i];
+                    }
+                }
+                if (to_v[i] != Double.MAX_VALUE && from_u[j] != Double.MAX_VALUE) {
+                    double d = to_v[i] + weight + from_u[j];
+                    if (distances[row_i + j] > d) {
+                        distances[row_i + j] = (float) d;
+                        next[row_i + j] = (char) next_v[i];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates all paths after the length of the undirected edge u-v increased.
+     *
+     * Rows whose shortest path tree may contain the edge are recomputed in full
+     * precision and stored again. Stored distances are rounded to floats, so the
+     * test for such rows allows a relative error of TOLERANCE.
+     *
+     * @param graph Graph edges, already holding the new length.
+     * @param u Index of first node.
+     * @param v Index of second node.
+     * @param old_weight Length of the edge before the change.
+     * @return Number of recomputed rows.
+     */
+    int increaseEdge(CompressedGraph graph, int u, int v, double old_weight) {
+        Dijkstra dijkstra = new Dijkstra(graph);
+        double[] row_distances = new double[size];
+        int[] row_next = new int[size];
+        int rows = 0;
+        for (int i = 0; i < size; i++) {
+            double to_u = distance(i, u);
+            double to_v = distance(i, v);
+            if (usesEdge(to_u, old_weight, to_v) || usesEdge(to_v, old_weight, to_u)) {
+                dijkstra.run(i, row_distances, row_next, 0);
+                setRow(i, row_distances, row_next);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns true if a shortest path may reach the second node over the edge.
+     *
+     * @param first Distance to the node before the edge.
+     * @param weight Length of the edge.
+     * @param second Distance to the node after the edge.
+     * @return The boolean.
+     */
+    private static boolean usesEdge(double first, double weight, double second) {
+        if (first == Double.MAX_VALUE || second == Double.MAX_VALUE) {
+            return false;
+        }
+        return first + weight <= second + TOLERANCE * Math.max(1, second);
+    }
+}
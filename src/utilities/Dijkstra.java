@@ -0,0 +1,190 @@
+package utilities;
+
+import procedures.grapher.CompressedGraph;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra class.
+ *
+ * Single-source shortest paths with an indexed binary heap. One object keeps its
+ * heap arrays between runs, so it must not be shared between threads.
+ */
+final class Dijkstra {
+
+    /** Heap position of nodes whose distance is final. */
+    private static final int SETTLED = -2;
+
+    /** Graph edges. */
+    private final CompressedGraph graph;
+
+    /** Heap of node IDs ordered by tentative distance. */
+    private final int[] heap;
+
+    /** Position of each node in the heap, -1 if it was not reached yet or SETTLED. */
+    private final int[] position;
+
+    /** Tentative distances of the current run. */
+    private final double[] dist;
+
+    /** Number of nodes in the heap. */
+    private int heap_size;
+
+    /**
+     * Dijkstra constructor.
+     *
+     * @param graph Graph edges.
+     */
+    Dijkstra(CompressedGraph graph) {
+        this.graph = graph;
+        this.heap = new int[graph.size()];
+        this.position = new int[graph.size()];
+        this.dist = new double[graph.size()];
+    }
+
+    /**
+     * Computes shortest paths from source and writes them as one matrix row.
+     *
+     * Unreachable nodes get distance Double.MAX_VALUE and next hop -1.
+     *
+     * @param source Index of starting node.
+     * @param distances Array that receives distances.
+     * @param next Array that receives the first node on each path.
+     * @param offset Index of the source's row in both arrays.
+     */
+    void run(int source, double[] distances, int[] next, int offset) {
+        search(source, distances, next, offset, true);
+    }
+
+    /**
+     * Computes the shortest path tree rooted at source.
+     *
+     * Each node receives its predecessor on the path from source. On a graph with
+     * symmetric edges this is also the next node on the shortest path towards source.
+     * Unreachable nodes get distance Double.MAX_VALUE and predecessor -1.
+     *
+     * @param source Index of the root node.
+     * @param distances Array that receives distances.
+     * @param parent Array that receives predecessors.
+     * @param offset Index where the row starts in both arrays.
+     */
+    void tree(int source, double[] distances, int[] parent, int offset) {
+        search(source, distances, parent, offset, false);
+    }
+
+    /**
+     * Runs the search and labels each node with its first hop or its predecessor.
+     *
+     * @param source Index of starting node.
+     * @param distances Array that receives distances.
+     * @param next Array that receives the labels.
+     * @param offset Index where the row starts in both arrays.
+     * @param first_hop True to store first hops, false to store predecessors.
+     */
+    private void search(int source, double[] distances, int[] next, int offset, boolean first_hop) {
+        int size = graph.size();
+        Arrays.fill(dist, Double.MAX_VALUE);
+        Arrays.fill(position, -1);
+        Arrays.fill(next, offset, offset + size, -1);
+        heap_size = 0;
+        dist[source] = 0;
+        next[offset + source] = source;
+        push(source);
+        while (heap_size > 0) {
+            int u = pop();
+            double du = dist[u];
+            int label = !first_hop ? u : u == source ? -1 : next[offset + u];
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                double d = du + graph.weight(e);
+                if (d < dist[v] && position[v] != SETTLED) {
+                    dist[v] = d;
+                    next[offset + v] = label == -1 ? v : label;
+                    if (position[v] >= 0) {
+                        siftUp(position[v]);
+                    }
+                    else {
+                        push(v);
+                    }
+                }
+            }
+        }
+        System.arraycopy(dist, 0, distances, offset, size);
+    }
+
+    /**
+     * Inserts a node into the heap.
+     *
+     * @param node ID of the node.
+     */
+    private void push(int node) {
+        heap[heap_size] = node;
+        position[node] = heap_size;
+        siftUp(heap_size++);
+    }
+
+    /**
+     * Removes the node with the smallest tentative distance from the heap.
+     *
+     * @return ID of the node.
+     */
+    private int pop() {
+        int top = heap[0];
+        position[top] = SETTLED;
+        heap_size--;
+        if (heap_size > 0) {
+            heap[0] = heap[heap_size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Moves a heap entry towards the root until the heap property holds.
+     *
+     * @param i Position in the heap.
+     */
+    private void siftUp(int i) {
+        int node = heap[i];
+        double d = dist[node];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (dist[heap[parent]] <= d) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        position[node] = i;
+    }
+
+    /**
+     * Moves a heap entry towards the leaves until the heap property holds.
+     *
+     * @param i Position in the heap.
+     */
+    private void siftDown(int i) {
+        int node = heap[i];
+        double d = dist[node];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heap_size) {
+                break;
+            }
+            if (child + 1 < heap_size && dist[heap[child + 1]] < dist[heap[child]]) {
+                child++;
+            }
+            if (dist[heap[child]] >= d) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        position[node] = i;
+    }
+}
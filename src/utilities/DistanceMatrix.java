@@ -0,0 +1,36 @@
+package utilities;
+
+/**
+ * DistanceMatrix interface.
+ *
+ * Read-only view of all-pairs shortest paths. For every ordered pair of nodes it
+ * stores the distance of the shortest path and the ID of the first node on it,
+ * which is enough to reconstruct the whole path by following next hops.
+ */
+public interface DistanceMatrix {
+
+    /**
+     * Returns number of nodes covered by the matrix.
+     *
+     * @return The size.
+     */
+    int size();
+
+    /**
+     * Returns distance of the shortest path between two nodes.
+     *
+     * @param from Index of starting node.
+     * @param to Index of target node.
+     * @return Distance, or Double.MAX_VALUE if target is unreachable.
+     */
+    double distance(int from, int to);
+
+    /**
+     * Returns the next node to visit when reconstructing the path.
+     *
+     * @param from Index of starting node.
+     * @param to Index of target node.
+     * @return ID of the next node, or -1 if target is unreachable.
+     */
+    int next(int from, int to);
+}
@@ -0,0 +1,128 @@
+package utilities;
+
+import procedures.grapher.Graph;
+import procedures.grapher.Node;
+
+/**
+ * EuclideanDistanceMatrix class.
+ *
+ * Computes distances between points in the plane on demand, so complete instances of
+ * any size take memory linear in the number of nodes. Every pair is connected
+ * directly, so the next hop towards a node is the node itself.
+ */
+public class EuclideanDistanceMatrix implements DistanceMatrix {
+
+    /**
+     * Rounding of distances, as defined by TSPLIB edge weight types.
+     */
+    public enum Rounding {
+        /** Exact distance. */
+        EXACT,
+        /** Distance rounded to the nearest integer, TSPLIB EUC_2D. */
+        NEAREST,
+        /** Distance rounded up, TSPLIB CEIL_2D. */
+        CEIL
+    }
+
+    /** X coordinates of the nodes. */
+    private final double[] x;
+
+    /** Y coordinates of the nodes. */
+    private final double[] y;
+
+    /** Rounding of distances. */
+    private final Rounding rounding;
+
+    /**
+     * EuclideanDistanceMatrix constructor.
+     *
+     * @param x X coordinates of the nodes.
+     * @param y Y coordinates of the nodes.
+     * @param rounding Rounding of distances.
+     */
+    public EuclideanDistanceMatrix(double[] x, double[] y, Rounding rounding) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Every node needs both coordinates.");
+        }
+        this.x = x;
+        this.y = y;
+        this.rounding = rounding;
+    }
+
+    /**
+     * Returns a matrix over positions of the nodes of a graph.
+     *
+     * @param graph Graph whose nodes all have positions.
+     * @param rounding Rounding of distances.
+     * @return The matrix.
+     */
+    public static EuclideanDistanceMatrix of(Graph graph, Rounding rounding) {
+        int size = graph.size();
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            Node node = graph.node(i);
+            if (Double.isNaN(node.x()) || Double.isNaN(node.y())) {
+                throw new IllegalArgumentException("Node " + i + " has no position.");
+            }
+            x[i] = node.x();
+            y[i] = node.y();
+        }
+        return new EuclideanDistanceMatrix(x, y, rounding);
+    }
+
+    @Override
+    public int size() {
+        return x.length;
+    }
+
+    @Override
+    public double distance(int from, int to) {
+        return length(x[from] - x[to], y[from] - y[to]);
+    }
+
+    /**
+     * Returns rounded length of a vector. Rounding never decreases with the exact
+     * length, so rounded lengths of lower bounds are lower bounds.
+     *
+     * @param dx X component.
+     * @param dy Y component.
+     * @return The length.
+     */
+    public double length(double dx, double dy) {
+        double d = Math.sqrt(dx * dx + dy * dy);
+        switch (rounding) {
+            case NEAREST:
+                return (int) (d + 0.5);
+            case CEIL:
+                return Math.ceil(d);
+            default:
+                return d;
+        }
+    }
+
+    @Override
+    public int next(int from, int to) {
+        return to;
+    }
+
+    /**
+     * Returns x coordinate of a node.
+     *
+     * @param node ID of the node.
+     * @return The coordinate.
+     */
+    public double x(int node) {
+        return x[node];
+    }
+
+    /**
+     * Returns y coordinate of a node.
+     *
+     * @param node ID of the node.
+     * @return The coordinate.
+     */
+    public double y(int node) {
+        return y[node];
+    }
+}
@@ -1,12 +1,14 @@
 package utilities;
 
+import procedures.grapher.CompressedGraph;
 import procedures.grapher.Edge;
 import procedures.grapher.Graph;
-import procedures.grapher.Node;
 
-import java.util.Arrays;
+import java.io.File;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * FloydWarshall class.
@@ -15,11 +17,29 @@ import java.util.List;
  */
 public class FloydWarshall {
 
+    /** Measured cost of a Dijkstra heap step relative to a Floyd-Warshall inner step. */
+    private static final double DIJKSTRA_COST = 0.75;
+
     /** Pointer to graph object. */
     private final Graph graph;
 
-    /** 2D-array of FloydWarshall cells. */
-    private FWCell[][] dists;
+    /** Matrix of shortest path distances and next hops. */
+    private DistanceMatrix dists;
+
+    /** False for a matrix given to useMatrix(), which need not hold shortest paths of the graph. */
+    private boolean shortest = true;
+
+    /** Stored shortest paths for fast route evaluation, or null. */
+    private PathTable path_table;
+
+    /** Expander used by list-based path methods. */
+    private RouteExpander expander;
+
+    /** Reused copy of the permutation given to list-based path methods. */
+    private final IntList input = new IntList();
+
+    /** Reused result buffer of list-based path methods. */
+    private final IntList output = new IntList();
 
     /** Distance of path is stored here after calling permuationToPath() method. */
     private double permutation_distance;
@@ -35,61 +55,372 @@ public class FloydWarshall {
 
     /**
      * Calculates shortest paths and their distances.
+     *
+     * Sparse graphs are solved with one Dijkstra run per node, dense graphs with the
+     * Floyd-Warshall algorithm. Distances do not depend on the choice, but where
+     * shortest paths tie the two may store different ones, see ParallelDijkstra. Use
+     * calculateDense() where paths must be those of the Floyd-Warshall algorithm.
      */
     public void calculate() {
-        int size = graph.getNodes().size();
-        FWCell[][] distances = new FWCell[size][size];
-        dists = new FWCell[size][size];
+        CompressedGraph csr = graph.csr();
+        if (isSparse(csr.size(), csr.edges())) {
+            calculateSparse();
+        }
+        else {
+            calculateDense();
+        }
+    }
+
+    /**
+     * Returns true if Dijkstra runs are expected to be cheaper than Floyd-Warshall.
+     *
+     * A run from every node costs about V * E * log V heap steps, while Floyd-Warshall
+     * always performs V^3 inner steps.
+     *
+     * @param size Number of nodes.
+     * @param edges Number of directed edges.
+     * @return The boolean.
+     */
+    private static boolean isSparse(int size, int edges) {
+        double log = Math.log(Math.max(size, 2)) / Math.log(2);
+        return DIJKSTRA_COST * edges * log < (double) size * size;
+    }
+
+    /**
+     * Calculates shortest paths with the Floyd-Warshall algorithm.
+     */
+    public void calculateDense() {
+        ArrayDistanceMatrix matrix = initialMatrix();
+        int size = matrix.size();
+        double[] distances = matrix.distances();
+        int[] next = matrix.nextHops();
+        for (int k = 0; k < size; k++) {
+            int row_k = k * size;
+            for (int i = 0; i < size; i++) {
+                int row_i = i * size;
+                double through_k = distances[row_i + k];
+                if (through_k == Double.MAX_VALUE) {
+                    continue;
+                }
+                int next_k = next[row_i + k];
+                for (int j = 0; j < size; j++) {
+                    double d = through_k + distances[row_k + j];
+                    if (distances[row_i + j] > d) {
+                        distances[row_i + j] = d;
+                        next[row_i + j] = next_k;
+                    }
+                }
+            }
+        }
+        setMatrix(matrix);
+    }
+
+    /**
+     * Calculates shortest paths with the tiled algorithm on the common ForkJoinPool.
+     *
+     * @param block_size Edge length of a block.
+     */
+    public void calculate(int block_size) {
+        ArrayDistanceMatrix matrix = initialMatrix();
+        new BlockedFloydWarshall(block_size, ForkJoinPool.commonPool()).run(matrix);
+        setMatrix(matrix);
+    }
+
+    /**
+     * Calculates shortest paths with parallel Dijkstra runs on the common ForkJoinPool.
+     */
+    public void calculateSparse() {
+        ArrayDistanceMatrix matrix = new ArrayDistanceMatrix(graph.csr().size());
+        new ParallelDijkstra(ForkJoinPool.commonPool()).run(graph.csr(), matrix);
+        setMatrix(matrix);
+    }
+
+    /**
+     * Calculates shortest paths into a compact matrix of float distances and 16-bit
+     * next hops, which needs half the memory of a full matrix.
+     *
+     * Sparse graphs are solved row by row, so a full matrix never exists. Dense graphs
+     * are solved with Floyd-Warshall and then converted.
+     */
+    public void calculateCompact() {
+        CompressedGraph csr = graph.csr();
+        if (isSparse(csr.size(), csr.edges())) {
+            CompactDistanceMatrix matrix = new CompactDistanceMatrix(csr.size());
+            new ParallelDijkstra(ForkJoinPool.commonPool()).run(csr, matrix);
+            setMatrix(matrix);
+        }
+        else {
+            calculateDense();
+            setMatrix(CompactDistanceMatrix.of(dists));
+        }
+    }
+
+    /**
+     * Replaces the full matrix with an oracle that computes rows when they are needed.
+     *
+     * Memory stays bounded by cached_rows rows of V entries, so graphs where V x V
+     * does not fit can still be solved.
+     *
+     * @param cached_rows Maximum number of rows kept in memory.
+     */
+    public void calculateLazy(int cached_rows) {
+        setMatrix(new ShortestPathOracle(graph.csr(), cached_rows));
+    }
+
+    /**
+     * Uses a given matrix of distances, such as the distances of a loaded instance.
+     *
+     * Such a matrix need not hold shortest paths of the graph, so the first edge
+     * change computes them from the graph, whose edges must then hold the same
+     * distances, as VrpReader gives with connect.
+     *
+     * @param matrix The matrix, of the same size as the graph.
+     */
+    public void useMatrix(DistanceMatrix matrix) {
+        if (matrix.size() != graph.size()) {
+            throw new IllegalArgumentException("Matrix size does not match the graph.");
+        }
+        setMatrix(matrix);
+        shortest = false;
+    }
+
+    /**
+     * Loads shortest paths from a cache directory, or calculates and stores them there.
+     *
+     * Files are named by the fingerprint of the graph. A loaded matrix is memory-mapped,
+     * so it is read from the page cache and shared with other processes. A file that
+     * can not be read is replaced.
+     *
+     * @param directory The cache directory.
+     */
+    public void calculateCached(File directory) {
+        File file = new File(directory, graph.fingerprint() + ".fwm");
+        if (file.isFile()) {
+            try {
+                MappedDistanceMatrix matrix = MappedDistanceMatrix.open(file);
+                if (matrix.size() == graph.size()) {
+                    setMatrix(matrix);
+                    return;
+                }
+            }
+            catch (IOException e) {
+                System.err.println("Ignoring unreadable matrix file " + file + ": " + e.getMessage());
+            }
+        }
+        calculate();
+        try {
+            if (directory.isDirectory() || directory.mkdirs()) {
+                MappedDistanceMatrix.write(dists, file);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Failed to cache matrix in " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Changes length of an edge and updates stored shortest paths.
+     *
+     * A decrease is applied by relaxing all pairs through the edge in O(V^2), an
+     * increase recomputes only the rows whose paths may use the edge. Cached rows of a
+     * lazy matrix are dropped, and a compact matrix is updated in its own precision.
+     * A read-only matrix, such as one mapped from the cache, is first copied into a
+     * full matrix, so the graph is never changed when stored paths can not follow it.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @param weight New length.
+     */
+    public void setEdgeWeight(int from, int to, double weight) {
+        double old_weight = weight(from, to);
+        prepareUpdate();
+        graph.setEdgeWeight(from, to, weight);
+        update(from, to, old_weight);
+    }
+
+    /**
+     * Closes an edge and updates stored shortest paths.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     */
+    public void closeEdge(int from, int to) {
+        double old_weight = weight(from, to);
+        prepareUpdate();
+        graph.closeEdge(from, to);
+        update(from, to, old_weight);
+    }
+
+    /**
+     * Reopens a closed edge and updates stored shortest paths.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     */
+    public void reopenEdge(int from, int to) {
+        double old_weight = weight(from, to);
+        prepareUpdate();
+        graph.reopenEdge(from, to);
+        update(from, to, old_weight);
+    }
+
+    /**
+     * Returns current length of an edge.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @return The length.
+     */
+    private double weight(int from, int to) {
+        Edge edge = graph.edge(from, to);
+        if (edge == null) {
+            throw new IllegalArgumentException("There is no edge between " + from + " and " + to + ".");
+        }
+        return edge.weight();
+    }
+
+    /**
+     * Makes sure stored paths can be updated in place, before the graph is changed.
+     *
+     * A matrix given to useMatrix() need not hold shortest paths of the graph, which
+     * incremental updates rely on, so they are computed again from the graph. A matrix
+     * that can only be read is replaced with a full copy. Both happen while the graph
+     * is unchanged, so if they fail both stay as they were.
+     */
+    private void prepareUpdate() {
+        if (dists == null) {
+            return;
+        }
+        if (!shortest) {
+            calculate();
+            return;
+        }
+        if (dists instanceof ShortestPathOracle || dists instanceof ArrayDistanceMatrix
+                || dists instanceof CompactDistanceMatrix) {
+            return;
+        }
+        int size = dists.size();
+        ArrayDistanceMatrix matrix = new ArrayDistanceMatrix(size);
         for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
-                distances[i][j] = new FWCell(-1, Double.MAX_VALUE);
+                matrix.set(i, j, dists.next(i, j), dists.distance(i, j));
             }
         }
-        for (Node node : graph.getNodes().values()) {
-            for (Edge edge : node.getEdges().values()) {
-                distances[node.id()][edge.to().id()].set(edge.to().id(), edge.weight());
+        setMatrix(matrix);
+    }
+
+    /**
+     * Brings stored paths in line with a changed edge of the graph.
+     *
+     * @param from ID of first node.
+     * @param to ID of second node.
+     * @param old_weight Length of the edge before the change.
+     */
+    private void update(int from, int to, double old_weight) {
+        double weight = graph.edge(from, to).weight();
+        if (dists == null || weight == old_weight) {
+            return;
+        }
+        path_table = null;
+        if (dists instanceof ShortestPathOracle) {
+            ((ShortestPathOracle) dists).invalidate();
+        }
+        else if (dists instanceof CompactDistanceMatrix) {
+            CompactDistanceMatrix matrix = (CompactDistanceMatrix) dists;
+            if (weight < old_weight) {
+                matrix.decreaseEdge(from, to, weight);
+            }
+            else {
+                matrix.increaseEdge(graph.csr(), from, to, old_weight);
             }
         }
-        for (int i = 0; i < size; i++) {
-            distances[i][i].set(i, 0);
+        else {
+            ArrayDistanceMatrix matrix = (ArrayDistanceMatrix) dists;
+            if (weight < old_weight) {
+                matrix.decreaseEdge(from, to, weight);
+            }
+            else {
+                matrix.increaseEdge(graph.csr(), from, to, old_weight);
+            }
         }
-        for (int k = 0; k < size; k++) {
-            for (int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    if (distances[i][j].getDistance() > distances[i][k].getDistance() + distances[k][j].getDistance()) {
-                        distances[i][j].set(distances[i][k].getNext(), distances[i][k].getDistance() + distances[k][j].getDistance());
-                    }
+    }
+
+    /**
+     * Installs a new matrix and drops paths stored for the previous one.
+     *
+     * @param matrix The matrix.
+     */
+    private void setMatrix(DistanceMatrix matrix) {
+        dists = matrix;
+        shortest = true;
+        path_table = null;
+    }
+
+    /**
+     * Stores all shortest paths of the current matrix for fast route evaluation.
+     *
+     * Expanders then walk contiguous stored paths instead of next hops. Must be called
+     * again after demands change; it is dropped when shortest paths change.
+     */
+    public void buildPathTable() {
+        path_table = new PathTable(dists, graph);
+    }
+
+    /**
+     * Returns stored shortest paths.
+     *
+     * @return The table, or null if it was not built.
+     */
+    public PathTable pathTable() {
+        return this.path_table;
+    }
+
+    /**
+     * Returns a matrix that only contains direct edges and zero-length paths to itself.
+     *
+     * @return The matrix.
+     */
+    private ArrayDistanceMatrix initialMatrix() {
+        CompressedGraph csr = graph.csr();
+        ArrayDistanceMatrix matrix = new ArrayDistanceMatrix(csr.size());
+        for (int u = 0; u < csr.size(); u++) {
+            for (int e = csr.begin(u); e < csr.end(u); e++) {
+                if (csr.weight(e) != Double.POSITIVE_INFINITY) {
+                    matrix.set(u, csr.target(e), csr.target(e), csr.weight(e));
                 }
             }
         }
-        dists = distances;
+        for (int i = 0; i < matrix.size(); i++) {
+            matrix.set(i, i, i, 0);
+        }
+        return matrix;
     }
 
     /**
-     * Reconstructs paths based on values 'next' in each FWCell.
+     * Reconstructs paths based on next hops stored in the matrix.
      *
      * @param from Index of starting node.
      * @param to Index of target node.
      * @return List representing shortest path.
      */
     public LinkedList<Integer> path(int from, int to) {
-        if (dists[from][to].getNext() == -1) {
+        if (dists.next(from, to) == -1) {
             return null;
         }
         LinkedList<Integer> result = new LinkedList<>();
         while (from != to) {
-            from = dists[from][to].getNext();
+            from = dists.next(from, to);
             result.add(from);
         }
         return result;
     }
 
     /**
-     * Returns 2D-array of FWCells.
+     * Returns the matrix of shortest paths.
      *
-     * @return The 2D-array.
+     * @return The matrix.
      */
-    public FWCell[][] getPaths() {
+    public DistanceMatrix getPaths() {
         return this.dists;
     }
 
@@ -103,127 +434,91 @@ public class FloydWarshall {
      * @return Final permutation.
      */
     public List<Integer> finalizePath(List<Integer> permutation) {
-        List<Integer> path = new LinkedList<>();
-        permutation_distance = 0;
-        path.add(0);
-        for (int i = 0; i < permutation.size() - 1; i++) {
-            int current = permutation.get(i);
-            int next = permutation.get(i + 1);
-            LinkedList<Integer> temp = path(current, next);
-            permutation_distance += dists[current][next].getDistance();
-            path.addAll(temp);
-        }
-        return path;
+        permutation_distance = expander().finalizePath(input(permutation), output);
+        return output.toList();
     }
 
     /**
      * Transform a permutation of integers into a real path.
      *
-     * Each pair of nodes is replaced with a shortest path between them.
-     * Distance of the path is stored in 'permutation_distance' field.
+     * Nodes are visited in the order of the permutation. Nodes on the way are served
+     * while they fit on the car; when a node does not fit, the car returns to the depot.
      *
      * @param permutation The initial permutation.
+     * @param capacity Capacity of the car.
      * @return Final permutation.
      */
     public List<Integer> permutationToPath(List<Integer> permutation, double capacity) {
-        List<Integer> path = new LinkedList<>();
-        double weight = 0;
-        double[] demands = new double[graph.size()];
-        for (Node node : graph.getNodes().values()) {
-            demands[node.id()] = node.demand();
-        }
-        path.add(0);
-        int current = 0;
-        for (int i = 0; i < permutation.size(); i++) {
-            int next = permutation.get(i);
-            if (demands[next] > 0) {
-                LinkedList<Integer> temp = path(current, next);
-                int idx = 0;
-                while (current != next) {
-                    int id = temp.get(idx);
-                    if (id == 0) {
-                        weight = 0;
-                        idx++;
-                    }
-                    else if (weight + demands[id] <= capacity) {
-                        weight += demands[id];
-                        demands[id] = 0;
-                        path.add(id);
-                        idx++;
-                    }
-                    else {
-                        LinkedList<Integer> return_path = path(id, 0);
-                        for (int id_return : return_path) {
-                            if (weight + demands[id_return] <= capacity) {
-                                weight += demands[id_return];
-                                demands[id_return] = 0;
-                            }
-                        }
-                        path.add(id);
-                        path.addAll(return_path);
-                        temp = path(0, next);
-                        weight = 0;
-                        id = 0;
-                        idx = 0;
-                    }
-                    current = id;
-                }
-            }
-        }
-        LinkedList<Integer> return_path = path(current, 0);
-        path.addAll(return_path);
-        return path;
+        RouteExpander expander = expander();
+        expander.refreshDemands();
+        expander.permutationToPath(input(permutation), capacity, output);
+        return output.toList();
     }
 
+    /**
+     * Returns nodes of a permutation in the order permutationToPath() serves them.
+     *
+     * @param permutation The initial permutation.
+     * @param capacity Capacity of the car.
+     * @return Fixed permutation.
+     */
     public List<Integer> fixPermutation(List<Integer> permutation, double capacity) {
-        List<Integer> fixed = new LinkedList<>();
-        double weight = 0;
-        double[] demands = new double[graph.size()];
-        for (Node node : graph.getNodes().values()) {
-            demands[node.id()] = node.demand();
-        }
-        int current = 0;
-        for (int i = 0; i < permutation.size(); i++) {
-            int next = permutation.get(i);
-            if (demands[next] > 0) {
-                LinkedList<Integer> temp = path(current, next);
-                int idx = 0;
-                while (current != next) {
-                    int id = temp.get(idx);
-                    if (id == 0) {
-                        weight = 0;
-                        idx++;
-                    }
-                    else if (weight + demands[id] <= capacity) {
-                        if (demands[id] > 0) {
-                            fixed.add(id);
-                        }
-                        weight += demands[id];
-                        demands[id] = 0;
-                        idx++;
-                    }
-                    else {
-                        LinkedList<Integer> return_path = path(id, 0);
-                        for (int id_return : return_path) {
-                            if (weight + demands[id_return] <= capacity) {
-                                if (demands[id_return] > 0) {
-                                    fixed.add(id_return);
-                                }
-                                weight += demands[id_return];
-                                demands[id_return] = 0;
-
-                            }
-                        }
-                        temp = path(0, next);
-                        weight = 0;
-                        id = 0;
-                        idx = 0;
-                    }
-                    current = id;
-                }
-            }
+        RouteExpander expander = expander();
+        expander.refreshDemands();
+        expander.fixPermutation(input(permutation), capacity, output);
+        return output.toList();
+    }
+
+    /**
+     * Returns the routes that permutationToPath() drives, as customers in the order
+     * they are served with a zero wherever the car passes the depot.
+     *
+     * Following shortest paths between consecutive entries gives the path of
+     * permutationToPath(), except where the car drives to a node that does not fit
+     * and turns back to the depot there. Such detours are cut short, so the distance
+     * of the routes is at most the distance of the path, and equal without them.
+     *
+     * @param permutation The initial permutation.
+     * @param capacity Capacity of the car.
+     * @return The routes, every route starts and ends at the depot.
+     */
+    public List<Integer> servedRoutes(List<Integer> permutation, double capacity) {
+        RouteExpander expander = expander();
+        expander.refreshDemands();
+        expander.servedRoutes(input(permutation), capacity, output);
+        return output.toList();
+    }
+
+    /**
+     * Returns a new expander with its own buffers, for allocation-free path operations.
+     *
+     * @return The expander.
+     */
+    public RouteExpander newExpander() {
+        return new RouteExpander(this, graph);
+    }
+
+    /**
+     * Returns the expander used by list-based path methods.
+     *
+     * @return The expander.
+     */
+    private RouteExpander expander() {
+        if (expander == null) {
+            expander = newExpander();
         }
-        return fixed;
+        return expander;
+    }
+
+    /**
+     * Copies a permutation into the reused input buffer.
+     *
+     * @param permutation The permutation.
+     * @return The buffer.
+     */
+    private IntList input(List<Integer> permutation) {
+        input.setAll(permutation);
+        return input;
     }
 
     /**
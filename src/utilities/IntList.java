@@ -0,0 +1,138 @@
+package utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * IntList class.
+ *
+ * Growable list of primitive integers. Clearing keeps the allocated array, so one
+ * list can be reused as a buffer without boxing or allocation per element.
+ */
+public class IntList {
+
+    /** Stored values, only the first 'size' are valid. */
+    private int[] data;
+
+    /** Number of stored values. */
+    private int size;
+
+    /**
+     * IntList constructor.
+     */
+    public IntList() {
+        this(16);
+    }
+
+    /**
+     * IntList constructor with initial capacity.
+     *
+     * @param capacity Number of values that fit before the array grows.
+     */
+    public IntList(int capacity) {
+        this.data = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Returns a list with values of a list of integers.
+     *
+     * @param values The values.
+     * @return The list.
+     */
+    public static IntList of(List<Integer> values) {
+        IntList list = new IntList(values.size());
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    /**
+     * Appends a value.
+     *
+     * @param value The value.
+     */
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, 2 * data.length);
+        }
+        data[size++] = value;
+    }
+
+    /**
+     * Returns value at an index.
+     *
+     * @param index The index.
+     * @return The value.
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return data[index];
+    }
+
+    /**
+     * Replaces value at an index.
+     *
+     * @param index The index.
+     * @param value The value.
+     */
+    public void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        data[index] = value;
+    }
+
+    /**
+     * Returns number of values.
+     *
+     * @return The number.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all values but keeps the allocated array.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Replaces contents with values of a list of integers.
+     *
+     * @param values The values.
+     */
+    public void setAll(List<Integer> values) {
+        clear();
+        for (int value : values) {
+            add(value);
+        }
+    }
+
+    /**
+     * Returns a copy of the values.
+     *
+     * @return The array.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * Returns a boxed copy of the values.
+     *
+     * @return The list.
+     */
+    public List<Integer> toList() {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(data[i]);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,487 @@
+package utilities;
+
+/**
+ * KdTree class.
+ *
+ * Balanced two-dimensional tree over the nodes of a EuclideanDistanceMatrix, for
+ * nearest neighbour and radius queries in logarithmic expected time. The tree is
+ * stored implicitly: node ids are permuted so that every range [lo, hi) is split by
+ * the node at its middle, and each middle slot keeps the bounding box of its range.
+ *
+ * Every node also has a key, such as remaining demand, and each slot keeps the
+ * smallest key in its range. nearestFitting() skips ranges where no key fits, so
+ * served customers are pruned as whole subtrees. Distances and tie-breaking (lower
+ * id wins) are the same as in a linear scan over the matrix.
+ */
+public class KdTree {
+
+    /** Metric and coordinates of the nodes. */
+    private final EuclideanDistanceMatrix matrix;
+
+    /** Node ids in tree order. */
+    private final int[] ids;
+
+    /** Position of each node in tree order. */
+    private final int[] slot_of;
+
+    /** Splitting dimension of each slot, 0 for x and 1 for y. */
+    private final byte[] dims;
+
+    /** Smallest x coordinate in the range of each slot. */
+    private final double[] min_x;
+
+    /** Largest x coordinate in the range of each slot. */
+    private final double[] max_x;
+
+    /** Smallest y coordinate in the range of each slot. */
+    private final double[] min_y;
+
+    /** Largest y coordinate in the range of each slot. */
+    private final double[] max_y;
+
+    /** Key of each node, by node id. */
+    private final double[] keys;
+
+    /** Smallest key in the range of each slot. */
+    private final double[] min_keys;
+
+    /** Best node of the running query, -1 while there is none. */
+    private int best;
+
+    /** Distance of the best node of the running query. */
+    private double best_distance;
+
+    /**
+     * KdTree constructor. All keys start at zero.
+     *
+     * @param matrix Metric and coordinates of the nodes.
+     */
+    public KdTree(EuclideanDistanceMatrix matrix) {
+        int size = matrix.size();
+        this.matrix = matrix;
+        this.ids = new int[size];
+        this.slot_of = new int[size];
+        this.dims = new byte[size];
+        this.min_x = new double[size];
+        this.max_x = new double[size];
+        this.min_y = new double[size];
+        this.max_y = new double[size];
+        this.keys = new double[size];
+        this.min_keys = new double[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i;
+        }
+        build(0, size);
+        for (int s = 0; s < size; s++) {
+            slot_of[ids[s]] = s;
+        }
+    }
+
+    /**
+     * Returns number of nodes.
+     *
+     * @return The number.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Splits a range along its wider side and builds both halves.
+     *
+     * @param lo First slot of the range.
+     * @param hi Slot after the range.
+     */
+    private void build(int lo, int hi) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double x0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (int s = lo; s < hi; s++) {
+            double x = matrix.x(ids[s]);
+            double y = matrix.y(ids[s]);
+            x0 = Math.min(x0, x);
+            x1 = Math.max(x1, x);
+            y0 = Math.min(y0, y);
+            y1 = Math.max(y1, y);
+        }
+        min_x[mid] = x0;
+        max_x[mid] = x1;
+        min_y[mid] = y0;
+        max_y[mid] = y1;
+        byte dim = (byte) (x1 - x0 >= y1 - y0 ? 0 : 1);
+        dims[mid] = dim;
+        select(lo, hi - 1, mid, dim);
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    /**
+     * Reorders a range so that the k-th slot holds the node it would hold if the
+     * range was sorted by one coordinate.
+     *
+     * @param lo First slot.
+     * @param hi Last slot.
+     * @param k The slot.
+     * @param dim The coordinate.
+     */
+    private void select(int lo, int hi, int k, byte dim) {
+        while (lo < hi) {
+            double pivot = coordinate(ids[(lo + hi) >>> 1], dim);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate(ids[i], dim) < pivot) {
+                    i++;
+                }
+                while (coordinate(ids[j], dim) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = ids[i];
+                    ids[i] = ids[j];
+                    ids[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            }
+            else if (k >= i) {
+                lo = i;
+            }
+            else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns one coordinate of a node.
+     *
+     * @param node ID of the node.
+     * @param dim 0 for x, 1 for y.
+     * @return The coordinate.
+     */
+    private double coordinate(int node, byte dim) {
+        return dim == 0 ? matrix.x(node) : matrix.y(node);
+    }
+
+    /**
+     * Sets keys of all nodes.
+     *
+     * @param values Key of each node.
+     */
+    public void setKeys(double[] values) {
+        System.arraycopy(values, 0, keys, 0, keys.length);
+        minKeys(0, ids.length);
+    }
+
+    /**
+     * Recomputes smallest keys of a range and its subranges.
+     *
+     * @param lo First slot of the range.
+     * @param hi Slot after the range.
+     * @return The smallest key, positive infinity for an empty range.
+     */
+    private double minKeys(int lo, int hi) {
+        if (lo >= hi) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int mid = (lo + hi) >>> 1;
+        double min = Math.min(keys[ids[mid]], Math.min(minKeys(lo, mid), minKeys(mid + 1, hi)));
+        min_keys[mid] = min;
+        return min;
+    }
+
+    /**
+     * Changes the key of a node in O(log V).
+     *
+     * @param node ID of the node.
+     * @param key The key, positive infinity to exclude the node from fitting queries.
+     */
+    public void setKey(int node, double key) {
+        keys[node] = key;
+        updateKey(0, ids.length, slot_of[node]);
+    }
+
+    /**
+     * Recomputes smallest keys on the path from a range to a slot.
+     *
+     * @param lo First slot of the range.
+     * @param hi Slot after the range.
+     * @param slot The slot.
+     * @return Smallest key of the range.
+     */
+    private double updateKey(int lo, int hi, int slot) {
+        if (lo >= hi) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int mid = (lo + hi) >>> 1;
+        double left = slot < mid ? updateKey(lo, mid, slot) : (lo < mid ? min_keys[(lo + mid) >>> 1] : Double.POSITIVE_INFINITY);
+        double right = slot > mid ? updateKey(mid + 1, hi, slot) : (mid + 1 < hi ? min_keys[(mid + 1 + hi) >>> 1] : Double.POSITIVE_INFINITY);
+        min_keys[mid] = Math.min(keys[ids[mid]], Math.min(left, right));
+        return min_keys[mid];
+    }
+
+    /**
+     * Returns the nearest node other than 'from' whose key fits on top of a load.
+     *
+     * @param from ID of the node the distance is measured from.
+     * @param load Current load.
+     * @param capacity Capacity, a node fits if load + key <= capacity.
+     * @return ID of the node, or -1 if no key fits.
+     */
+    public int nearestFitting(int from, double load, double capacity) {
+        best = -1;
+        best_distance = Double.MAX_VALUE;
+        nearestFitting(0, ids.length, from, load, capacity);
+        return best;
+    }
+
+    /**
+     * Searches a range for the nearest fitting node and records it with offer().
+     *
+     * @param lo First slot of the range.
+     * @param hi Slot after the range.
+     * @param from ID of the node the distance is measured from.
+     * @param load Current load.
+     * @param capacity Capacity, a node fits if load + key <= capacity.
+     */
+    private void nearestFitting(int lo, int hi, int from, double load, double capacity) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (!(load + min_keys[mid] <= capacity) || bound(mid, from) > best_distance) {
+            return;
+        }
+        int node = ids[mid];
+        if (node != from && load + keys[node] <= capacity) {
+            offer(node, matrix.distance(from, node));
+        }
+        if (coordinate(from, dims[mid]) < coordinate(node, dims[mid])) {
+            nearestFitting(lo, mid, from, load, capacity);
+            nearestFitting(mid + 1, hi, from, load, capacity);
+        }
+        else {
+            nearestFitting(mid + 1, hi, from, load, capacity);
+            nearestFitting(lo, mid, from, load, capacity);
+        }
+    }
+
+    /**
+     * Stores k nearest nodes other than 'from', closest first.
+     *
+     * @param from ID of the node the distance is measured from.
+     * @param k Number of nodes.
+     * @param out Array that receives the nodes.
+     * @param offset First index written in the array.
+     * @return Number of nodes stored, less than k if the tree is smaller.
+     */
+    public int nearest(int from, int k, int[] out, int offset) {
+        k = Math.min(k, ids.length - 1);
+        if (k <= 0) {
+            return 0;
+        }
+        int[] heap = new int[k];
+        double[] heap_distances = new double[k];
+        int count = nearest(0, ids.length, from, k, heap, heap_distances, 0);
+        for (int n = count - 1; n >= 0; n--) {
+            out[offset + n] = heap[0];
+            heap[0] = heap[n];
+            heap_distances[0] = heap_distances[n];
+            siftDown(heap, heap_distances, n);
+        }
+        return count;
+    }
+
+    /**
+     * Collects nearest nodes of a range into a max-heap of the k best so far.
+     *
+     * @param lo First slot of the range.
+     * @param hi Slot after the range.
+     * @param from ID of the node the distance is measured from.
+     * @param k Number of nodes.
+     * @param heap Nodes in the heap, the farthest at the root.
+     * @param heap_distances Their distances.
+     * @param count Number of nodes in the heap before the call.
+     * @return Number of nodes in the heap.
+     */
+    private int nearest(int lo, int hi, int from, int k, int[] heap, double[] heap_distances, int count) {
+        if (lo >= hi) {
+            return count;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (count == k && bound(mid, from) > heap_distances[0]) {
+            return count;
+        }
+        int node = ids[mid];
+        if (node != from) {
+            double d = matrix.distance(from, node);
+            if (count < k) {
+                heap[count] = node;
+                heap_distances[count] = d;
+                count++;
+                siftUp(heap, heap_distances, count - 1);
+            }
+            else if (before(d, node, heap_distances[0], heap[0])) {
+                heap[0] = node;
+                heap_distances[0] = d;
+                siftDown(heap, heap_distances, count);
+            }
+        }
+        if (coordinate(from, dims[mid]) < coordinate(node, dims[mid])) {
+            count = nearest(lo, mid, from, k, heap, heap_distances, count);
+            count = nearest(mid + 1, hi, from, k, heap, heap_distances, count);
+        }
+        else {
+            count = nearest(mid + 1, hi, from, k, heap, heap_distances, count);
+            count = nearest(lo, mid, from, k, heap, heap_distances, count);
+        }
+        return count;
+    }
+
+    /**
+     * Appends all nodes other than 'from' within a distance, in no particular order.
+     *
+     * @param from ID of the node the distance is measured from.
+     * @param radius Largest included distance.
+     * @param out List that receives the nodes.
+     */
+    public void radius(int from, double radius, IntList out) {
+        radius(0, ids.length, from, radius, out);
+    }
+
+    /**
+     * Appends nodes of a range within a distance.
+     *
+     * @param lo First slot of the range.
+     * @param hi Slot after the range.
+     * @param from ID of the node the distance is measured from.
+     * @param radius Largest included distance.
+     * @param out List that receives the nodes.
+     */
+    private void radius(int lo, int hi, int from, double radius, IntList out) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (bound(mid, from) > radius) {
+            return;
+        }
+        int node = ids[mid];
+        if (node != from && matrix.distance(from, node) <= radius) {
+            out.add(node);
+        }
+        radius(lo, mid, from, radius, out);
+        radius(mid + 1, hi, from, radius, out);
+    }
+
+    /**
+     * Returns a lower bound of the distance from a node to any node in the range of
+     * a slot.
+     *
+     * @param slot The slot.
+     * @param from ID of the node.
+     * @return The bound.
+     */
+    private double bound(int slot, int from) {
+        double x = matrix.x(from);
+        double y = matrix.y(from);
+        double dx = Math.max(0, Math.max(min_x[slot] - x, x - max_x[slot]));
+        double dy = Math.max(0, Math.max(min_y[slot] - y, y - max_y[slot]));
+        return matrix.length(dx, dy);
+    }
+
+    /**
+     * Records a candidate of nearestFitting() if it beats the best one.
+     *
+     * @param node ID of the candidate.
+     * @param distance Its distance.
+     */
+    private void offer(int node, double distance) {
+        if (best == -1 || before(distance, node, best_distance, best)) {
+            best = node;
+            best_distance = distance;
+        }
+    }
+
+    /**
+     * Returns true if the first node comes before the second one, by distance and then
+     * by id.
+     *
+     * @param d1 Distance of the first node.
+     * @param n1 ID of the first node.
+     * @param d2 Distance of the second node.
+     * @param n2 ID of the second node.
+     * @return The boolean.
+     */
+    private static boolean before(double d1, int n1, double d2, int n2) {
+        return d1 < d2 || (d1 == d2 && n1 < n2);
+    }
+
+    /**
+     * Moves an entry up the max-heap of nearest().
+     *
+     * @param heap Nodes in the heap.
+     * @param distances Their distances.
+     * @param i Position of the entry.
+     */
+    private static void siftUp(int[] heap, double[] distances, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(distances[parent], heap[parent], distances[i], heap[i])) {
+                return;
+            }
+            swap(heap, distances, i, parent);
+            i = parent;
+        }
+    }
+
+    /**
+     * Moves the root down the max-heap of nearest().
+     *
+     * @param heap Nodes in the heap.
+     * @param distances Their distances.
+     * @param count Number of entries in the heap.
+     */
+    private static void siftDown(int[] heap, double[] distances, int count) {
+        int i = 0;
+        while (true) {
+            int largest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < count; child++) {
+                if (before(distances[largest], heap[largest], distances[child], heap[child])) {
+                    largest = child;
+                }
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(heap, distances, i, largest);
+            i = largest;
+        }
+    }
+
+    /**
+     * Swaps two entries of the heap.
+     *
+     * @param heap Nodes in the heap.
+     * @param distances Their distances.
+     * @param i First position.
+     * @param j Second position.
+     */
+    private static void swap(int[] heap, double[] distances, int i, int j) {
+        int node = heap[i];
+        heap[i] = heap[j];
+        heap[j] = node;
+        double d = distances[i];
+        distances[i] = distances[j];
+        distances[j] = d;
+    }
+}
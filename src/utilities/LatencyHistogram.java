@@ -0,0 +1,84 @@
+package utilities;
+
+/**
+ * LatencyHistogram class.
+ *
+ * Histogram of durations in buckets of powers of two microseconds, so it takes 64
+ * counters regardless of the number of samples. Percentiles are reported as the upper
+ * bound of their bucket, which is at most twice the true value.
+ */
+public class LatencyHistogram {
+
+    /** Number of samples per bucket; bucket b holds durations below 2^b microseconds. */
+    private final long[] buckets = new long[64];
+
+    /** Number of samples. */
+    private long count;
+
+    /** Sum of all samples in nanoseconds. */
+    private long total;
+
+    /** Largest sample in nanoseconds. */
+    private long max;
+
+    /**
+     * Adds a sample.
+     *
+     * @param nanos Duration in nanoseconds.
+     */
+    public synchronized void record(long nanos) {
+        long micros = Math.max(0, nanos) / 1000;
+        buckets[64 - Long.numberOfLeadingZeros(micros)]++;
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * Returns number of samples.
+     *
+     * @return The number.
+     */
+    public synchronized long count() {
+        return this.count;
+    }
+
+    /**
+     * Returns mean duration.
+     *
+     * @return Mean in nanoseconds, 0 without samples.
+     */
+    public synchronized double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns the longest duration.
+     *
+     * @return Maximum in nanoseconds.
+     */
+    public synchronized long max() {
+        return this.max;
+    }
+
+    /**
+     * Returns an upper bound of a percentile.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return Upper bound of the percentile's bucket in nanoseconds, 0 without samples.
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int b = 0; b < buckets.length; b++) {
+            seen += buckets[b];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(max, (1L << b) * 1000);
+            }
+        }
+        return max;
+    }
+}
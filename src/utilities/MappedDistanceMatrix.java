@@ -0,0 +1,184 @@
+package utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * MappedDistanceMatrix class.
+ *
+ * Distance matrix that lives in a binary file and is read through memory-mapped
+ * buffers, so its data stays in the page cache instead of on the heap and can be
+ * shared by several processes. The file holds a 16 byte header (magic, version,
+ * size, reserved) followed by all distances and then all next hops, both row-major
+ * and little-endian.
+ */
+public class MappedDistanceMatrix implements DistanceMatrix {
+
+    /** First four bytes of every matrix file. */
+    private static final int MAGIC = 0x4657444D;
+
+    /** Version of the file layout. */
+    private static final int VERSION = 1;
+
+    /** Length of the header in bytes. */
+    private static final int HEADER = 16;
+
+    /** Maximum number of bytes mapped by a single buffer. */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    /** Number of nodes. */
+    private final int size;
+
+    /** Number of rows in each mapped segment. */
+    private final int rows_per_segment;
+
+    /** Segments of the distance section. */
+    private final DoubleBuffer[] distances;
+
+    /** Segments of the next hop section. */
+    private final IntBuffer[] next;
+
+    /**
+     * Constructor for MappedDistanceMatrix object.
+     *
+     * @param size Number of nodes.
+     * @param distances Segments of the distance section.
+     * @param next Segments of the next hop section.
+     * @param rows_per_segment Number of rows in each segment.
+     */
+    private MappedDistanceMatrix(int size, DoubleBuffer[] distances, IntBuffer[] next, int rows_per_segment) {
+        this.size = size;
+        this.distances = distances;
+        this.next = next;
+        this.rows_per_segment = rows_per_segment;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public double distance(int from, int to) {
+        return distances[from / rows_per_segment].get((from % rows_per_segment) * size + to);
+    }
+
+    @Override
+    public int next(int from, int to) {
+        return next[from / rows_per_segment].get((from % rows_per_segment) * size + to);
+    }
+
+    /**
+     * Maps a matrix file into memory.
+     *
+     * @param file The file.
+     * @return The matrix.
+     * @throws IOException If the file can not be read or is not a matrix file.
+     */
+    public static MappedDistanceMatrix open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a distance matrix file: " + file);
+            }
+            int size = header.getInt();
+            long cells = (long) size * size;
+            if (channel.size() != HEADER + cells * (Double.BYTES + Integer.BYTES)) {
+                throw new IOException("Distance matrix file is truncated: " + file);
+            }
+            int rows_per_segment = (int) Math.max(1, Math.min(size, SEGMENT_BYTES / ((long) size * Double.BYTES)));
+            int segments = size == 0 ? 0 : (size + rows_per_segment - 1) / rows_per_segment;
+            DoubleBuffer[] distances = new DoubleBuffer[segments];
+            IntBuffer[] next = new IntBuffer[segments];
+            long next_start = HEADER + cells * Double.BYTES;
+            for (int s = 0; s < segments; s++) {
+                long first = (long) s * rows_per_segment * size;
+                long length = Math.min((long) rows_per_segment * size, cells - first);
+                distances[s] = map(channel, HEADER + first * Double.BYTES, length * Double.BYTES).asDoubleBuffer();
+                next[s] = map(channel, next_start + first * Integer.BYTES, length * Integer.BYTES).asIntBuffer();
+            }
+            return new MappedDistanceMatrix(size, distances, next, rows_per_segment);
+        }
+    }
+
+    /**
+     * Maps a read-only region of a file.
+     *
+     * @param channel Channel of the file.
+     * @param position Start of the region.
+     * @param length Length of the region in bytes.
+     * @return Little-endian buffer over the region.
+     * @throws IOException If mapping fails.
+     */
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes a matrix to a file.
+     *
+     * The data is first written to a temporary file that is then moved in place, so
+     * concurrent readers never see a partially written matrix.
+     *
+     * @param matrix The matrix.
+     * @param file The file.
+     * @throws IOException If the file can not be written.
+     */
+    public static void write(DistanceMatrix matrix, File file) throws IOException {
+        int size = matrix.size();
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(0);
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (buffer.remaining() < Double.BYTES) {
+                        drain(buffer, channel);
+                    }
+                    buffer.putDouble(matrix.distance(i, j));
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (buffer.remaining() < Integer.BYTES) {
+                        drain(buffer, channel);
+                    }
+                    buffer.putInt(matrix.next(i, j));
+                }
+            }
+            drain(buffer, channel);
+        }
+        catch (IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes buffered bytes to the channel and empties the buffer.
+     *
+     * @param buffer The buffer.
+     * @param channel The channel.
+     * @throws IOException If writing fails.
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
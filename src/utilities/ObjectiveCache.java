@@ -0,0 +1,173 @@
+package utilities;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * ObjectiveCache class.
+ *
+ * Bounded cache of objective values of permutations. A permutation is keyed by two
+ * independent Zobrist hashes, each the XOR of a random key per (position, node) pair,
+ * so false hits are practically impossible and a swap of two positions changes a
+ * hash by four XORs. Keys are produced by a mixing function instead of a V x V table.
+ *
+ * The table is two-way set associative: a permutation can be stored in one of two
+ * slots of its set, and a miss replaces the slot that was used less recently.
+ */
+public class ObjectiveCache {
+
+    /** Seed of the hash that picks the set of a permutation. */
+    private static final long FIRST_SEED = 0x9E3779B97F4A7C15L;
+
+    /** Seed of the hash that confirms a stored permutation. */
+    private static final long SECOND_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    /** First hashes of stored permutations. */
+    private final long[] hashes;
+
+    /** Second hashes of stored permutations. */
+    private final long[] checks;
+
+    /** Objective values of stored permutations. */
+    private final double[] values;
+
+    /** Whether a slot holds a value. */
+    private final boolean[] full;
+
+    /** Per set, true if its second slot was used more recently than the first. */
+    private final boolean[] second_recent;
+
+    /** Mask of set indices. */
+    private final int mask;
+
+    /** Number of lookups that found a value. */
+    private long hits;
+
+    /** Number of lookups that computed a value. */
+    private long misses;
+
+    /** Number of values replaced by newer ones. */
+    private long evictions;
+
+    /**
+     * Constructor for ObjectiveCache object.
+     *
+     * @param capacity Maximum number of stored values, rounded up to a power of two.
+     */
+    public ObjectiveCache(int capacity) {
+        int slots = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.hashes = new long[slots];
+        this.checks = new long[slots];
+        this.values = new double[slots];
+        this.full = new boolean[slots];
+        this.second_recent = new boolean[slots / 2];
+        this.mask = slots / 2 - 1;
+    }
+
+    /**
+     * Returns the objective of a permutation, computing and storing it on a miss.
+     *
+     * @param permutation The permutation.
+     * @param objective Function that computes the objective.
+     * @return The objective.
+     */
+    public double evaluate(List<Integer> permutation, ToDoubleFunction<List<Integer>> objective) {
+        long hash = 0;
+        long check = 0;
+        int position = 0;
+        for (int node : permutation) {
+            hash ^= key(position, node, FIRST_SEED);
+            check ^= key(position, node, SECOND_SEED);
+            position++;
+        }
+        int set = (int) (hash ^ hash >>> 32) & mask;
+        for (int way = 0; way < 2; way++) {
+            int slot = 2 * set + way;
+            if (full[slot] && hashes[slot] == hash && checks[slot] == check) {
+                hits++;
+                second_recent[set] = way == 1;
+                return values[slot];
+            }
+        }
+        misses++;
+        double value = objective.applyAsDouble(permutation);
+        int way = second_recent[set] ? 0 : 1;
+        if (!full[2 * set]) {
+            way = 0;
+        }
+        else if (!full[2 * set + 1]) {
+            way = 1;
+        }
+        int slot = 2 * set + way;
+        if (full[slot]) {
+            evictions++;
+        }
+        hashes[slot] = hash;
+        checks[slot] = check;
+        values[slot] = value;
+        full[slot] = true;
+        second_recent[set] = way == 1;
+        return value;
+    }
+
+    /**
+     * Drops all stored values, for example when the objective changes. Statistics
+     * are kept.
+     */
+    public void clear() {
+        Arrays.fill(full, false);
+        Arrays.fill(second_recent, false);
+    }
+
+    /**
+     * Returns the Zobrist key of a node at a position.
+     *
+     * @param position The position.
+     * @param node ID of the node.
+     * @param seed Seed of the hash.
+     * @return The key.
+     */
+    public static long key(int position, int node, long seed) {
+        long z = ((long) position << 32 | node) + seed;
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+
+    /**
+     * Returns number of lookups that found a value.
+     *
+     * @return The number.
+     */
+    public long hits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns number of lookups that computed a value.
+     *
+     * @return The number.
+     */
+    public long misses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns number of values replaced by newer ones.
+     *
+     * @return The number.
+     */
+    public long evictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Returns the share of lookups that found a value.
+     *
+     * @return The rate, 0 before the first lookup.
+     */
+    public double hitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
@@ -0,0 +1,127 @@
+package utilities;
+
+import procedures.grapher.CompressedGraph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelDijkstra class.
+ *
+ * Computes all-pairs shortest paths as one Dijkstra run per source node. Runs are
+ * independent, so rows of the matrix are filled in parallel on a ForkJoinPool.
+ * On sparse graphs this needs O(V * E * log V) work instead of the O(V^3) of the
+ * Floyd-Warshall algorithm.
+ *
+ * Distances are the same as those of Floyd-Warshall. Where several shortest paths
+ * have equal length, Dijkstra keeps the one over the node it settled first while
+ * Floyd-Warshall keeps the one whose highest intermediate node is lowest, so next
+ * hops, and with them expanded routes, can differ between the two. Both are
+ * shortest paths.
+ */
+public class ParallelDijkstra {
+
+    /** Number of rows a single task computes without splitting further. */
+    private static final int ROWS_PER_TASK = 16;
+
+    /** Pool that executes the runs. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for ParallelDijkstra object.
+     *
+     * @param pool Pool that executes the runs.
+     */
+    public ParallelDijkstra(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Fills every row of the matrix with distances and next hops.
+     *
+     * @param graph Graph edges.
+     * @param matrix The matrix.
+     */
+    void run(CompressedGraph graph, ArrayDistanceMatrix matrix) {
+        pool.invoke(new RowTask(graph, matrix, null, 0, matrix.size()));
+    }
+
+    /**
+     * Fills every row of a compact matrix with distances and next hops.
+     *
+     * Rows are computed in full precision and converted one at a time.
+     *
+     * @param graph Graph edges.
+     * @param matrix The matrix.
+     */
+    void run(CompressedGraph graph, CompactDistanceMatrix matrix) {
+        pool.invoke(new RowTask(graph, null, matrix, 0, matrix.size()));
+    }
+
+    /**
+     * RowTask class.
+     *
+     * Computes a range of rows, splitting it in halves while it is large. Rows are
+     * written either straight into a full matrix or through a buffer into a compact one.
+     */
+    private static class RowTask extends RecursiveAction {
+
+        /** Version of the serialized form, tasks are never serialized. */
+        private static final long serialVersionUID = 1L;
+
+        /** Graph edges. */
+        private final CompressedGraph graph;
+
+        /** Full matrix that receives the rows, or null. */
+        private final ArrayDistanceMatrix matrix;
+
+        /** Compact matrix that receives the rows, or null. */
+        private final CompactDistanceMatrix compact;
+
+        /** First row of the range. */
+        private final int from;
+
+        /** Row after the last row of the range. */
+        private final int to;
+
+        /**
+         * Constructor for RowTask object.
+         *
+         * @param graph Graph edges.
+         * @param matrix Full matrix that receives the rows, or null.
+         * @param compact Compact matrix that receives the rows, or null.
+         * @param from First row of the range.
+         * @param to Row after the last row of the range.
+         */
+        RowTask(CompressedGraph graph, ArrayDistanceMatrix matrix, CompactDistanceMatrix compact, int from, int to) {
+            this.graph = graph;
+            this.matrix = matrix;
+            this.compact = compact;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowTask(graph, matrix, compact, from, middle), new RowTask(graph, matrix, compact, middle, to));
+                return;
+            }
+            Dijkstra dijkstra = new Dijkstra(graph);
+            int size = graph.size();
+            if (compact == null) {
+                for (int source = from; source < to; source++) {
+                    dijkstra.run(source, matrix.distances(), matrix.nextHops(), source * size);
+                }
+                return;
+            }
+            double[] distances = new double[size];
+            int[] next = new int[size];
+            for (int source = from; source < to; source++) {
+                dijkstra.run(source, distances, next, 0);
+                compact.setRow(source, distances, next);
+            }
+        }
+    }
+}
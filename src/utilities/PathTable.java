@@ -0,0 +1,119 @@
+package utilities;
+
+import procedures.grapher.Graph;
+import procedures.grapher.CompressedGraph;
+
+/**
+ * PathTable class.
+ *
+ * Stores every shortest path of a distance matrix as a contiguous run of node IDs,
+ * together with the total demand of the nodes on it. A path from i to j holds the
+ * nodes after i up to and including j. Walking a path then reads consecutive array
+ * elements instead of one matrix row per hop, and the demand total tells in O(1)
+ * whether a partly loaded car can serve the whole path.
+ *
+ * The table holds V^2 offsets plus all paths, so it is meant for graphs of up to a
+ * few thousand nodes. Demand totals are taken when the table is built.
+ */
+public class PathTable {
+
+    /** Number of nodes. */
+    private final int size;
+
+    /** Start of the path from i to j at index i * size + j, with one extra entry at the end. */
+    private final int[] offsets;
+
+    /** Nodes of all paths. */
+    private final int[] nodes;
+
+    /** Total demand on each path, infinity if the path passes the depot. */
+    private final double[] demands;
+
+    /**
+     * Constructor for PathTable object.
+     *
+     * @param matrix Distance matrix whose paths are stored.
+     * @param graph Graph object that provides demands.
+     */
+    public PathTable(DistanceMatrix matrix, Graph graph) {
+        this.size = matrix.size();
+        if ((long) size * size >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Path table of " + size + " nodes does not fit into an array.");
+        }
+        CompressedGraph csr = graph.csr();
+        offsets = new int[size * size + 1];
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                offsets[i * size + j] = (int) total;
+                if (matrix.next(i, j) != -1) {
+                    for (int k = i; k != j; k = matrix.next(k, j)) {
+                        total++;
+                    }
+                }
+                if (total > Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("Paths of " + size + " nodes do not fit into an array.");
+                }
+            }
+        }
+        offsets[size * size] = (int) total;
+        nodes = new int[(int) total];
+        demands = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int e = offsets[i * size + j];
+                double sum = 0;
+                if (matrix.next(i, j) != -1) {
+                    for (int k = i; k != j; ) {
+                        k = matrix.next(k, j);
+                        nodes[e++] = k;
+                        sum += k == 0 ? Double.POSITIVE_INFINITY : csr.demand(k);
+                    }
+                }
+                demands[i * size + j] = sum;
+            }
+        }
+    }
+
+    /**
+     * Returns array of all stored nodes.
+     *
+     * @return The array.
+     */
+    public int[] nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Returns index in nodes() of the first node after 'from' on the path.
+     *
+     * @param from Index of starting node.
+     * @param to Index of target node.
+     * @return The index.
+     */
+    public int start(int from, int to) {
+        return offsets[from * size + to];
+    }
+
+    /**
+     * Returns index in nodes() just after the last node of the path.
+     *
+     * @param from Index of starting node.
+     * @param to Index of target node.
+     * @return The index.
+     */
+    public int end(int from, int to) {
+        return offsets[from * size + to + 1];
+    }
+
+    /**
+     * Returns total demand of the nodes after 'from' on the path.
+     *
+     * @param from Index of starting node.
+     * @param to Index of target node.
+     * @return The demand, or infinity if the path passes the depot.
+     */
+    public double demand(int from, int to) {
+        return demands[from * size + to];
+    }
+}
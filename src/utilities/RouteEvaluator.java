@@ -0,0 +1,458 @@
+package utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RouteEvaluator class.
+ *
+ * Keeps a solution as routes of customers, each a doubly linked list between two
+ * depot sentinels, together with the load and cost of every route. Cost of a route
+ * is the sum of shortest-path distances between consecutive stops. Swap and
+ * relocate moves are evaluated and applied in O(1), independent of the number of
+ * customers, because they only touch the neighbours of the moved nodes and the
+ * cached loads and costs of at most two routes.
+ *
+ * Nodes 0 ... V - 1 are the graph nodes, node V + 2r is the start and V + 2r + 1 the
+ * end sentinel of route r. Both sentinels stand for the depot. Moves that involve
+ * nodes outside the solution are rejected.
+ */
+public class RouteEvaluator {
+
+    /** Shortest path distances. */
+    private final DistanceMatrix dists;
+
+    /** Demand of each graph node. */
+    private final double[] demands;
+
+    /** Capacity of the car. */
+    private final double capacity;
+
+    /** Number of graph nodes. */
+    private final int size;
+
+    /** Next stop of every node and sentinel. */
+    private final int[] succ;
+
+    /** Previous stop of every node and sentinel. */
+    private final int[] pred;
+
+    /** Route of every node and sentinel. */
+    private final int[] route;
+
+    /** Load of every route. */
+    private final double[] load;
+
+    /** Cost of every route. */
+    private final double[] cost;
+
+    /** Customers of the solution. */
+    private int[] customers;
+
+    /** All routes, those with customers first. */
+    private final int[] used;
+
+    /** Position of each route in used. */
+    private final int[] used_at;
+
+    /** Number of routes with customers. */
+    private int used_count;
+
+    /** Total cost of the solution. */
+    private double total;
+
+    /**
+     * Constructor for RouteEvaluator object.
+     *
+     * @param dists Shortest path distances.
+     * @param demands Demand of each graph node.
+     * @param capacity Capacity of the car.
+     */
+    public RouteEvaluator(DistanceMatrix dists, double[] demands, double capacity) {
+        this.dists = dists;
+        this.demands = demands;
+        this.capacity = capacity;
+        this.size = dists.size();
+        int routes = size;
+        this.succ = new int[size + 2 * routes];
+        this.pred = new int[size + 2 * routes];
+        this.route = new int[size + 2 * routes];
+        this.load = new double[routes];
+        this.cost = new double[routes];
+        this.used = new int[routes];
+        this.used_at = new int[routes];
+        this.customers = new int[0];
+    }
+
+    /**
+     * Builds routes from a permutation of customers. Customers are added to the
+     * current route while they fit, then a new route is started. A zero also ends the
+     * current route, so a list returned by routes() is loaded as it is.
+     *
+     * @param permutation The customers, optionally separated by zeros.
+     */
+    public void load(List<Integer> permutation) {
+        IntList list = new IntList(permutation.size());
+        for (int node : permutation) {
+            if (node != 0) {
+                list.add(node);
+            }
+        }
+        customers = list.toArray();
+        for (int node = 0; node < size; node++) {
+            route[node] = -1;
+        }
+        for (int r = 0; r < load.length; r++) {
+            link(start(r), end(r));
+            route[start(r)] = r;
+            route[end(r)] = r;
+            load[r] = 0;
+            cost[r] = 0;
+            used[r] = r;
+            used_at[r] = r;
+        }
+        used_count = 0;
+        int r = -1;
+        boolean closed = true;
+        for (int node : permutation) {
+            if (node == 0) {
+                closed = true;
+                continue;
+            }
+            if (closed || load[r] + demands[node] > capacity) {
+                r++;
+                markUsed(r);
+                closed = false;
+            }
+            int last = pred[end(r)];
+            link(last, node);
+            link(node, end(r));
+            route[node] = r;
+            load[r] += demands[node];
+        }
+        total = 0;
+        for (int i = 0; i < used_count; i++) {
+            total += routeCost(used[i]);
+        }
+    }
+
+    /**
+     * Recomputes and stores the cost of a route.
+     *
+     * @param r The route.
+     * @return The cost.
+     */
+    private double routeCost(int r) {
+        double c = 0;
+        for (int node = start(r); node != end(r); node = succ[node]) {
+            c += d(node, succ[node]);
+        }
+        cost[r] = c;
+        return c;
+    }
+
+    /**
+     * Recomputes total cost from scratch, which removes rounding drift of many
+     * incremental updates.
+     *
+     * @return The cost.
+     */
+    public double recompute() {
+        total = 0;
+        for (int i = 0; i < used_count; i++) {
+            total += routeCost(used[i]);
+        }
+        return total;
+    }
+
+    /**
+     * Returns total cost of the solution.
+     *
+     * @return The cost.
+     */
+    public double cost() {
+        return this.total;
+    }
+
+    /**
+     * Returns number of customers.
+     *
+     * @return The number.
+     */
+    public int customers() {
+        return customers.length;
+    }
+
+    /**
+     * Returns a customer.
+     *
+     * @param i Index of the customer, in the order they were loaded.
+     * @return ID of the node.
+     */
+    public int customer(int i) {
+        return customers[i];
+    }
+
+    /**
+     * Returns number of route starts a node can be moved after: all routes with
+     * customers and one empty route, if any is left.
+     *
+     * @return The number.
+     */
+    public int starts() {
+        return used_count < load.length ? used_count + 1 : used_count;
+    }
+
+    /**
+     * Returns the start sentinel of a route.
+     *
+     * @param i Index below starts(); the last index is an empty route.
+     * @return ID of the sentinel.
+     */
+    public int routeStart(int i) {
+        return start(used[i]);
+    }
+
+    /**
+     * Returns the solution as a list of nodes where every route starts and ends at
+     * the depot.
+     *
+     * @return The list.
+     */
+    public List<Integer> routes() {
+        List<Integer> result = new ArrayList<>(customers.length + used_count + 1);
+        result.add(0);
+        for (int i = 0; i < used_count; i++) {
+            for (int node = succ[start(used[i])]; node < size; node = succ[node]) {
+                result.add(node);
+            }
+            result.add(0);
+        }
+        return result;
+    }
+
+    /**
+     * Returns customers in the order of their routes.
+     *
+     * @return The list.
+     */
+    public List<Integer> permutation() {
+        List<Integer> result = routes();
+        result.removeIf(node -> node == 0);
+        return result;
+    }
+
+    /**
+     * Returns the change of cost if node u is moved right after node v.
+     *
+     * @param u ID of a customer.
+     * @param v ID of a customer or a start sentinel.
+     * @return The change, or positive infinity if the move is not possible or breaks
+     *         capacity.
+     */
+    public double relocateDelta(int u, int v) {
+        if (u == v || u == 0 || v == 0 || u >= size || route[u] == -1 || route[v] == -1 || pred[u] == v || isEnd(v)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (route[u] != route[v] && load[route[v]] + demands[u] > capacity) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int pu = pred[u];
+        int su = succ[u];
+        int sv = succ[v];
+        return d(pu, su) - d(pu, u) - d(u, su) + d(v, u) + d(u, sv) - d(v, sv);
+    }
+
+    /**
+     * Moves node u right after node v. The move must be possible.
+     *
+     * @param u ID of a customer.
+     * @param v ID of a customer or a start sentinel.
+     */
+    public void relocate(int u, int v) {
+        int ru = route[u];
+        int rv = route[v];
+        int pu = pred[u];
+        int su = succ[u];
+        double removed = d(pu, su) - d(pu, u) - d(u, su);
+        link(pu, su);
+        int sv = succ[v];
+        double inserted = d(v, u) + d(u, sv) - d(v, sv);
+        link(v, u);
+        link(u, sv);
+        route[u] = rv;
+        cost[ru] += removed;
+        cost[rv] += inserted;
+        load[ru] -= demands[u];
+        load[rv] += demands[u];
+        total += removed + inserted;
+        if (used_at[rv] >= used_count) {
+            markUsed(rv);
+        }
+        if (succ[start(ru)] == end(ru)) {
+            markEmpty(ru);
+        }
+    }
+
+    /**
+     * Returns the change of cost if customers u and v swap places.
+     *
+     * @param u ID of a customer.
+     * @param v ID of a customer.
+     * @return The change, or positive infinity if the move is not possible or breaks
+     *         capacity.
+     */
+    public double swapDelta(int u, int v) {
+        if (u == v || u == 0 || v == 0 || u >= size || v >= size || route[u] == -1 || route[v] == -1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int ru = route[u];
+        int rv = route[v];
+        if (ru != rv && (load[ru] - demands[u] + demands[v] > capacity || load[rv] - demands[v] + demands[u] > capacity)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int pu = pred[u];
+        int su = succ[u];
+        int pv = pred[v];
+        int sv = succ[v];
+        if (su == v) {
+            return d(pu, v) + d(v, u) + d(u, sv) - d(pu, u) - d(u, v) - d(v, sv);
+        }
+        if (sv == u) {
+            return d(pv, u) + d(u, v) + d(v, su) - d(pv, v) - d(v, u) - d(u, su);
+        }
+        return d(pu, v) + d(v, su) + d(pv, u) + d(u, sv) - d(pu, u) - d(u, su) - d(pv, v) - d(v, sv);
+    }
+
+    /**
+     * Swaps places of customers u and v. The move must be possible.
+     *
+     * @param u ID of a customer.
+     * @param v ID of a customer.
+     */
+    public void swap(int u, int v) {
+        int ru = route[u];
+        int rv = route[v];
+        int pu = pred[u];
+        int su = succ[u];
+        int pv = pred[v];
+        int sv = succ[v];
+        if (ru == rv) {
+            double change = swapDelta(u, v);
+            cost[ru] += change;
+            total += change;
+        }
+        else {
+            double change_u = d(pu, v) + d(v, su) - d(pu, u) - d(u, su);
+            double change_v = d(pv, u) + d(u, sv) - d(pv, v) - d(v, sv);
+            cost[ru] += change_u;
+            cost[rv] += change_v;
+            total += change_u + change_v;
+            load[ru] += demands[v] - demands[u];
+            load[rv] += demands[u] - demands[v];
+        }
+        if (su == v) {
+            link(pu, v);
+            link(v, u);
+            link(u, sv);
+        }
+        else if (sv == u) {
+            link(pv, u);
+            link(u, v);
+            link(v, su);
+        }
+        else {
+            link(pu, v);
+            link(v, su);
+            link(pv, u);
+            link(u, sv);
+        }
+        route[u] = rv;
+        route[v] = ru;
+    }
+
+    /**
+     * Links two stops.
+     *
+     * @param a First stop.
+     * @param b Second stop.
+     */
+    private void link(int a, int b) {
+        succ[a] = b;
+        pred[b] = a;
+    }
+
+    /**
+     * Returns distance between two stops, where sentinels stand for the depot.
+     *
+     * @param a First stop.
+     * @param b Second stop.
+     * @return The distance.
+     */
+    private double d(int a, int b) {
+        return dists.distance(a < size ? a : 0, b < size ? b : 0);
+    }
+
+    /**
+     * Returns the start sentinel of a route.
+     *
+     * @param r The route.
+     * @return ID of the sentinel.
+     */
+    private int start(int r) {
+        return size + 2 * r;
+    }
+
+    /**
+     * Returns the end sentinel of a route.
+     *
+     * @param r The route.
+     * @return ID of the sentinel.
+     */
+    private int end(int r) {
+        return size + 2 * r + 1;
+    }
+
+    /**
+     * Returns true if a stop is an end sentinel.
+     *
+     * @param node ID of the stop.
+     * @return The boolean.
+     */
+    private boolean isEnd(int node) {
+        return node >= size && ((node - size) & 1) == 1;
+    }
+
+    /**
+     * Moves a route among the routes with customers.
+     *
+     * @param r The route.
+     */
+    private void markUsed(int r) {
+        place(r, used_count++);
+    }
+
+    /**
+     * Moves a route that lost its last customer among the empty routes.
+     *
+     * @param r The route.
+     */
+    private void markEmpty(int r) {
+        place(r, --used_count);
+    }
+
+    /**
+     * Swaps a route with the route at a position of the route array.
+     *
+     * @param r The route.
+     * @param position The position.
+     */
+    private void place(int r, int position) {
+        int other = used[position];
+        int old = used_at[r];
+        used[old] = other;
+        used_at[other] = old;
+        used[position] = r;
+        used_at[r] = position;
+    }
+}
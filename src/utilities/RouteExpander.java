@@ -0,0 +1,352 @@
+package utilities;
+
+import procedures.grapher.Graph;
+import procedures.grapher.CompressedGraph;
+
+import java.util.List;
+
+/**
+ * RouteExpander class.
+ *
+ * Primitive counterpart of the path methods of FloydWarshall. Paths are followed
+ * hop by hop through the next hops of the distance matrix and written into
+ * reusable IntList buffers, so expanding a permutation into a route neither boxes
+ * nor allocates. Each object owns its buffers and must not be shared between threads.
+ */
+public class RouteExpander {
+
+    /** Pointer to FloydWarshall object that holds the distance matrix. */
+    private final FloydWarshall floydWarshall;
+
+    /** Pointer to graph object. */
+    private final Graph graph;
+
+    /** Demands of the nodes, refreshed from the graph on request. */
+    private final double[] initial_demands;
+
+    /** Remaining demands during a single expansion. */
+    private final double[] demands;
+
+    /** Buffer for permutations given as lists. */
+    private final IntList permutation;
+
+    /** Buffer for expanded routes. */
+    private final IntList route;
+
+    /**
+     * Constructor for RouteExpander object.
+     *
+     * @param fw FloydWarshall object.
+     * @param graph Graph object.
+     */
+    RouteExpander(FloydWarshall fw, Graph graph) {
+        this.floydWarshall = fw;
+        this.graph = graph;
+        this.initial_demands = new double[graph.size()];
+        this.demands = new double[graph.size()];
+        this.permutation = new IntList(graph.size());
+        this.route = new IntList(2 * graph.size());
+        refreshDemands();
+    }
+
+    /**
+     * Copies current demands of graph nodes. Must be called after demands change.
+     */
+    public void refreshDemands() {
+        CompressedGraph csr = graph.csr();
+        for (int i = 0; i < csr.size(); i++) {
+            initial_demands[i] = csr.demand(i);
+        }
+    }
+
+    /**
+     * Appends the shortest path between two nodes, without the first node.
+     *
+     * @param from Index of starting node.
+     * @param to Index of target node.
+     * @param path List that receives the path.
+     */
+    public void appendPath(int from, int to, IntList path) {
+        DistanceMatrix matrix = floydWarshall.getPaths();
+        while (from != to) {
+            from = matrix.next(from, to);
+            path.add(from);
+        }
+    }
+
+    /**
+     * Transforms a permutation of integers into a real path, see
+     * FloydWarshall.permutationToPath().
+     *
+     * @param permutation The permutation.
+     * @param capacity Capacity of the car.
+     * @param path List that receives the path.
+     */
+    public void permutationToPath(IntList permutation, double capacity, IntList path) {
+        DistanceMatrix matrix = floydWarshall.getPaths();
+        System.arraycopy(initial_demands, 0, demands, 0, demands.length);
+        path.clear();
+        path.add(0);
+        double weight = 0;
+        int current = 0;
+        for (int i = 0; i < permutation.size(); i++) {
+            int next = permutation.get(i);
+            if (demands[next] <= 0) {
+                continue;
+            }
+            while (current != next) {
+                int id = matrix.next(current, next);
+                if (id == 0) {
+                    weight = 0;
+                }
+                else if (weight + demands[id] <= capacity) {
+                    weight += demands[id];
+                    demands[id] = 0;
+                    path.add(id);
+                }
+                else {
+                    path.add(id);
+                    int back = id;
+                    while (back != 0) {
+                        back = matrix.next(back, 0);
+                        if (weight + demands[back] <= capacity) {
+                            weight += demands[back];
+                            demands[back] = 0;
+                        }
+                        path.add(back);
+                    }
+                    weight = 0;
+                    id = 0;
+                }
+                current = id;
+            }
+        }
+        appendPath(current, 0, path);
+    }
+
+    /**
+     * Returns a permutation of the nodes in the order they are served, see
+     * FloydWarshall.fixPermutation().
+     *
+     * @param permutation The permutation.
+     * @param capacity Capacity of the car.
+     * @param fixed List that receives the fixed permutation.
+     */
+    public void fixPermutation(IntList permutation, double capacity, IntList fixed) {
+        serve(permutation, capacity, fixed, false);
+    }
+
+    /**
+     * Returns the nodes of a permutation in the order they are served, split into
+     * routes by zeros wherever the car passes the depot, see
+     * FloydWarshall.servedRoutes().
+     *
+     * @param permutation The permutation.
+     * @param capacity Capacity of the car.
+     * @param routes List that receives the routes, starting and ending with 0.
+     */
+    public void servedRoutes(IntList permutation, double capacity, IntList routes) {
+        serve(permutation, capacity, routes, true);
+        if (routes.get(routes.size() - 1) != 0) {
+            routes.add(0);
+        }
+    }
+
+    /**
+     * Follows the serving rules of permutationToPath() and lists served nodes.
+     *
+     * @param permutation The permutation.
+     * @param capacity Capacity of the car.
+     * @param served List that receives served nodes.
+     * @param separate If true, a zero is listed whenever the car passes the depot.
+     */
+    private void serve(IntList permutation, double capacity, IntList served, boolean separate) {
+        DistanceMatrix matrix = floydWarshall.getPaths();
+        System.arraycopy(initial_demands, 0, demands, 0, demands.length);
+        served.clear();
+        if (separate) {
+            served.add(0);
+        }
+        double weight = 0;
+        int current = 0;
+        for (int i = 0; i < permutation.size(); i++) {
+            int next = permutation.get(i);
+            if (demands[next] <= 0) {
+                continue;
+            }
+            while (current != next) {
+                int id = matrix.next(current, next);
+                if (id == 0) {
+                    weight = 0;
+                    depot(served, separate);
+                }
+                else if (weight + demands[id] <= capacity) {
+                    if (demands[id] > 0) {
+                        served.add(id);
+                    }
+                    weight += demands[id];
+                    demands[id] = 0;
+                }
+                else {
+                    int back = id;
+                    while (back != 0) {
+                        back = matrix.next(back, 0);
+                        if (weight + demands[back] <= capacity) {
+                            if (demands[back] > 0) {
+                                served.add(back);
+                            }
+                            weight += demands[back];
+                            demands[back] = 0;
+                        }
+                    }
+                    weight = 0;
+                    id = 0;
+                    depot(served, separate);
+                }
+                current = id;
+            }
+        }
+    }
+
+    /**
+     * Ends the current route of served nodes, unless it is empty.
+     *
+     * @param served List of served nodes.
+     * @param separate If false, routes are not separated.
+     */
+    private static void depot(IntList served, boolean separate) {
+        if (separate && served.get(served.size() - 1) != 0) {
+            served.add(0);
+        }
+    }
+
+    /**
+     * Replaces each pair of consecutive nodes with the shortest path between them,
+     * see FloydWarshall.finalizePath().
+     *
+     * @param permutation The permutation.
+     * @param path List that receives the path.
+     * @return Distance of the path.
+     */
+    public double finalizePath(IntList permutation, IntList path) {
+        path.clear();
+        path.add(0);
+        for (int i = 0; i < permutation.size() - 1; i++) {
+            appendPath(permutation.get(i), permutation.get(i + 1), path);
+        }
+        return distance(permutation);
+    }
+
+    /**
+     * Returns distance of a route that follows shortest paths between consecutive nodes.
+     *
+     * @param route The route.
+     * @return The distance.
+     */
+    public double distance(IntList route) {
+        DistanceMatrix matrix = floydWarshall.getPaths();
+        double distance = 0;
+        for (int i = 0; i < route.size() - 1; i++) {
+            distance += matrix.distance(route.get(i), route.get(i + 1));
+        }
+        return distance;
+    }
+
+    /**
+     * Returns distance of the real path of a permutation, which equals
+     * finalizePath(permutationToPath(permutation)) without building either list.
+     *
+     * When the FloydWarshall object holds a path table, nodes are read from stored
+     * paths and distance is summed per path instead of per hop, which may differ
+     * from the per hop sum in the last bits.
+     *
+     * @param permutation The permutation.
+     * @param capacity Capacity of the car.
+     * @return The distance.
+     */
+    public double evaluate(IntList permutation, double capacity) {
+        PathTable table = floydWarshall.pathTable();
+        if (table == null) {
+            permutationToPath(permutation, capacity, route);
+            return distance(route);
+        }
+        return evaluate(permutation, capacity, table);
+    }
+
+    /**
+     * Evaluates a permutation with stored paths.
+     *
+     * Follows the same serving rules as permutationToPath(), but pays one distance
+     * lookup per visited path. A path whose total demand fits on the car is served
+     * without capacity checks.
+     *
+     * @param permutation The permutation.
+     * @param capacity Capacity of the car.
+     * @param table Stored paths.
+     * @return The distance.
+     */
+    private double evaluate(IntList permutation, double capacity, PathTable table) {
+        DistanceMatrix matrix = floydWarshall.getPaths();
+        int[] nodes = table.nodes();
+        System.arraycopy(initial_demands, 0, demands, 0, demands.length);
+        double weight = 0;
+        double distance = 0;
+        int current = 0;
+        for (int i = 0; i < permutation.size(); i++) {
+            int next = permutation.get(i);
+            if (demands[next] <= 0) {
+                continue;
+            }
+            int start = current;
+            if (weight + table.demand(current, next) <= capacity) {
+                for (int e = table.start(current, next); e < table.end(current, next); e++) {
+                    weight += demands[nodes[e]];
+                    demands[nodes[e]] = 0;
+                }
+            }
+            else {
+                int e = table.start(current, next);
+                int end = table.end(current, next);
+                while (e < end) {
+                    int id = nodes[e++];
+                    if (id == 0) {
+                        weight = 0;
+                    }
+                    else if (weight + demands[id] <= capacity) {
+                        weight += demands[id];
+                        demands[id] = 0;
+                    }
+                    else {
+                        distance += matrix.distance(start, id) + matrix.distance(id, 0);
+                        for (int r = table.start(id, 0); r < table.end(id, 0); r++) {
+                            int back = nodes[r];
+                            if (weight + demands[back] <= capacity) {
+                                weight += demands[back];
+                                demands[back] = 0;
+                            }
+                        }
+                        weight = 0;
+                        start = 0;
+                        e = table.start(0, next);
+                        end = table.end(0, next);
+                    }
+                }
+            }
+            distance += matrix.distance(start, next);
+            current = next;
+        }
+        return distance + matrix.distance(current, 0);
+    }
+
+    /**
+     * Returns distance of the real path of a permutation given as a list.
+     *
+     * @param permutation The permutation.
+     * @param capacity Capacity of the car.
+     * @return The distance.
+     */
+    public double evaluate(List<Integer> permutation, double capacity) {
+        this.permutation.setAll(permutation);
+        return evaluate(this.permutation, capacity);
+    }
+}
@@ -0,0 +1,250 @@
+package utilities;
+
+import procedures.grapher.CompressedGraph;
+
+import java.util.Arrays;
+
+/**
+ * ShortestPathOracle class.
+ *
+ * Answers distance and next hop queries without materializing all pairs. A row is
+ * the shortest path tree rooted at one node, computed with Dijkstra when it is first
+ * needed and kept in a cache of bounded size. When the cache is full, the least
+ * recently used row is evicted and its arrays are reused for the new one.
+ *
+ * Edges must be symmetric, as they are in Graph, so a single tree rooted at r gives
+ * both distances from r and next hops of every path that ends in r.
+ */
+public class ShortestPathOracle implements DistanceMatrix {
+
+    /** Marks a node whose row is not cached, and the end of the recency list. */
+    private static final int NONE = -1;
+
+    /** Graph edges. */
+    private final CompressedGraph graph;
+
+    /** Reusable single-source search. */
+    private final Dijkstra dijkstra;
+
+    /** Cache slot holding each node's row, or NONE. */
+    private final int[] slot_of;
+
+    /** Node whose row is held in each slot. */
+    private final int[] node_of;
+
+    /** Slot used before each slot, towards the most recently used. */
+    private final int[] newer;
+
+    /** Slot used after each slot, towards the least recently used. */
+    private final int[] older;
+
+    /** Distances of each cached row. */
+    private final double[][] distances;
+
+    /** Next hops towards the root of each cached row. */
+    private final int[][] parents;
+
+    /** Number of occupied slots. */
+    private int used;
+
+    /** Most recently used slot. */
+    private int head = NONE;
+
+    /** Least recently used slot. */
+    private int tail = NONE;
+
+    /** Number of queries answered from the cache. */
+    private long hits;
+
+    /** Number of rows that had to be computed. */
+    private long misses;
+
+    /** Number of rows dropped from the cache. */
+    private long evictions;
+
+    /**
+     * Constructor for ShortestPathOracle object.
+     *
+     * @param graph Graph edges.
+     * @param capacity Maximum number of cached rows.
+     */
+    ShortestPathOracle(CompressedGraph graph, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one row.");
+        }
+        if (!graph.isSymmetric()) {
+            throw new IllegalArgumentException("Shortest path oracle requires symmetric edges.");
+        }
+        capacity = Math.min(capacity, graph.size());
+        this.graph = graph;
+        this.dijkstra = new Dijkstra(graph);
+        this.slot_of = new int[graph.size()];
+        this.node_of = new int[capacity];
+        this.newer = new int[capacity];
+        this.older = new int[capacity];
+        this.distances = new double[capacity][];
+        this.parents = new int[capacity][];
+        Arrays.fill(slot_of, NONE);
+    }
+
+    @Override
+    public int size() {
+        return graph.size();
+    }
+
+    @Override
+    public synchronized double distance(int from, int to) {
+        int slot = slot_of[from];
+        if (slot != NONE) {
+            hits++;
+            touch(slot);
+            return distances[slot][to];
+        }
+        slot = slot_of[to];
+        if (slot != NONE) {
+            hits++;
+            touch(slot);
+            return distances[slot][from];
+        }
+        return distances[load(from)][to];
+    }
+
+    @Override
+    public synchronized int next(int from, int to) {
+        int slot = slot_of[to];
+        if (slot != NONE) {
+            hits++;
+            touch(slot);
+        }
+        else {
+            slot = load(to);
+        }
+        return parents[slot][from];
+    }
+
+    /**
+     * Computes the row of a node and stores it in a free or evicted slot.
+     *
+     * @param node Root of the row.
+     * @return The slot.
+     */
+    private int load(int node) {
+        misses++;
+        int slot;
+        if (used < node_of.length) {
+            slot = used++;
+            if (distances[slot] == null) {
+                distances[slot] = new double[graph.size()];
+                parents[slot] = new int[graph.size()];
+            }
+        }
+        else {
+            slot = tail;
+            unlink(slot);
+            slot_of[node_of[slot]] = NONE;
+            evictions++;
+        }
+        dijkstra.tree(node, distances[slot], parents[slot], 0);
+        node_of[slot] = node;
+        slot_of[node] = slot;
+        link(slot);
+        return slot;
+    }
+
+    /**
+     * Drops all cached rows, for example after edges have changed.
+     *
+     * Arrays of the rows are kept and reused.
+     */
+    synchronized void invalidate() {
+        Arrays.fill(slot_of, NONE);
+        used = 0;
+        head = NONE;
+        tail = NONE;
+    }
+
+    /**
+     * Marks a slot as the most recently used.
+     *
+     * @param slot The slot.
+     */
+    private void touch(int slot) {
+        if (slot != head) {
+            unlink(slot);
+            link(slot);
+        }
+    }
+
+    /**
+     * Puts a slot at the head of the recency list.
+     *
+     * @param slot The slot.
+     */
+    private void link(int slot) {
+        newer[slot] = NONE;
+        older[slot] = head;
+        if (head != NONE) {
+            newer[head] = slot;
+        }
+        head = slot;
+        if (tail == NONE) {
+            tail = slot;
+        }
+    }
+
+    /**
+     * Removes a slot from the recency list.
+     *
+     * @param slot The slot.
+     */
+    private void unlink(int slot) {
+        if (newer[slot] != NONE) {
+            older[newer[slot]] = older[slot];
+        }
+        else {
+            head = older[slot];
+        }
+        if (older[slot] != NONE) {
+            newer[older[slot]] = newer[slot];
+        }
+        else {
+            tail = newer[slot];
+        }
+    }
+
+    /**
+     * Returns number of queries answered from the cache.
+     *
+     * @return The number.
+     */
+    public synchronized long hits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns number of rows that had to be computed.
+     *
+     * @return The number.
+     */
+    public synchronized long misses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns number of rows dropped from the cache.
+     *
+     * @return The number.
+     */
+    public synchronized long evictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Returns number of rows currently cached.
+     *
+     * @return The number.
+     */
+    public synchronized int cachedRows() {
+        return this.used;
+    }
+}
@@ -0,0 +1,434 @@
+package utilities;
+
+import procedures.grapher.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solution class.
+ *
+ * A CVRP solution as routes of customers in primitive arrays. Every customer knows
+ * its successor, predecessor, route and position, and the load and cost of its route
+ * from the depot up to and including itself. Every route keeps its first and last
+ * customer, load and cost. This answers in O(1) whether a route has room for a
+ * customer or segment, and what a segment of consecutive customers weighs and costs,
+ * which is what move evaluation of solvers needs. Rewriting a route takes time linear
+ * in its length.
+ *
+ * Successor of the last and predecessor of the first customer of a route is 0, the
+ * depot. Node 0 and nodes outside the solution belong to route -1.
+ */
+public class Solution {
+
+    /** Shortest path distances. */
+    private final DistanceMatrix dists;
+
+    /** Demand of each node. */
+    private final double[] demands;
+
+    /** Capacity of the car. */
+    private final double capacity;
+
+    /** Next stop of every customer, 0 for the depot. */
+    private final int[] succ;
+
+    /** Previous stop of every customer, 0 for the depot. */
+    private final int[] pred;
+
+    /** Route of every customer, -1 for nodes outside the solution. */
+    private final int[] route;
+
+    /** Position of every customer in its route, starting at 0. */
+    private final int[] position;
+
+    /** Load of the route from the depot up to and including every customer. */
+    private final double[] prefix_load;
+
+    /** Cost of the route from the depot up to every customer. */
+    private final double[] prefix_cost;
+
+    /** First customer of every route, 0 for an empty route. */
+    private int[] first = new int[16];
+
+    /** Last customer of every route. */
+    private int[] last = new int[16];
+
+    /** Number of customers of every route. */
+    private int[] count = new int[16];
+
+    /** Load of every route. */
+    private double[] load = new double[16];
+
+    /** Cost of every route, including the way back to the depot. */
+    private double[] cost = new double[16];
+
+    /** Number of routes, including emptied ones. */
+    private int routes;
+
+    /** Total cost of all routes. */
+    private double total;
+
+    /**
+     * Constructor for an empty Solution object.
+     *
+     * @param dists Shortest path distances.
+     * @param demands Demand of each node.
+     * @param capacity Capacity of the car.
+     */
+    public Solution(DistanceMatrix dists, double[] demands, double capacity) {
+        this.dists = dists;
+        this.demands = demands;
+        this.capacity = capacity;
+        int size = dists.size();
+        this.succ = new int[size];
+        this.pred = new int[size];
+        this.route = new int[size];
+        this.position = new int[size];
+        this.prefix_load = new double[size];
+        this.prefix_cost = new double[size];
+        Arrays.fill(route, -1);
+    }
+
+    /**
+     * Builds a solution from routes of a graph.
+     *
+     * @param graph Graph object, for demands.
+     * @param dists Shortest path distances.
+     * @param capacity Capacity of the car.
+     * @param routes Customers, optionally separated by zeros.
+     * @return The solution.
+     */
+    public static Solution of(Graph graph, DistanceMatrix dists, double capacity, List<Integer> routes) {
+        double[] demands = new double[graph.size()];
+        for (int i = 0; i < demands.length; i++) {
+            demands[i] = graph.csr().demand(i);
+        }
+        Solution solution = new Solution(dists, demands, capacity);
+        solution.load(routes);
+        return solution;
+    }
+
+    /**
+     * Loads routes. A zero ends the current route, and a customer that does not fit
+     * on the car starts a new one, so a permutation without zeros is split greedily.
+     *
+     * @param solution Customers, optionally separated by zeros.
+     */
+    public void load(List<Integer> solution) {
+        Arrays.fill(route, -1);
+        routes = 0;
+        total = 0;
+        IntList current = new IntList();
+        double weight = 0;
+        for (int node : solution) {
+            if (node == 0 || weight + demands[node] > capacity) {
+                if (current.size() > 0) {
+                    addRoute(current.toArray());
+                    current.clear();
+                }
+                weight = 0;
+            }
+            if (node != 0) {
+                current.add(node);
+                weight += demands[node];
+            }
+        }
+        if (current.size() > 0) {
+            addRoute(current.toArray());
+        }
+    }
+
+    /**
+     * Appends a route.
+     *
+     * @param customers Customers of the route.
+     * @return Index of the route.
+     */
+    public int addRoute(int[] customers) {
+        if (routes == first.length) {
+            int length = 2 * routes;
+            first = Arrays.copyOf(first, length);
+            last = Arrays.copyOf(last, length);
+            count = Arrays.copyOf(count, length);
+            load = Arrays.copyOf(load, length);
+            cost = Arrays.copyOf(cost, length);
+        }
+        cost[routes] = 0;
+        routes++;
+        setRoute(routes - 1, customers);
+        return routes - 1;
+    }
+
+    /**
+     * Replaces customers of a route. Customers that left the route and are not put
+     * in another one must be put elsewhere by the caller.
+     *
+     * @param r The route.
+     * @param customers New customers of the route, may be empty.
+     */
+    public void setRoute(int r, int[] customers) {
+        double weight = 0;
+        double length = 0;
+        int previous = 0;
+        for (int i = 0; i < customers.length; i++) {
+            int node = customers[i];
+            weight += demands[node];
+            length += d(previous, node);
+            succ[previous] = node;
+            pred[node] = previous;
+            route[node] = r;
+            position[node] = i;
+            prefix_load[node] = weight;
+            prefix_cost[node] = length;
+            previous = node;
+        }
+        succ[previous] = 0;
+        length += d(previous, 0);
+        first[r] = customers.length == 0 ? 0 : customers[0];
+        last[r] = previous;
+        count[r] = customers.length;
+        load[r] = weight;
+        total += length - cost[r];
+        cost[r] = length;
+    }
+
+    /**
+     * Returns distance between two nodes.
+     *
+     * @param a First node.
+     * @param b Second node.
+     * @return The distance.
+     */
+    private double d(int a, int b) {
+        return dists.distance(a, b);
+    }
+
+    /**
+     * Returns number of routes, including emptied ones.
+     *
+     * @return The number.
+     */
+    public int routes() {
+        return this.routes;
+    }
+
+    /**
+     * Returns first customer of a route.
+     *
+     * @param r The route.
+     * @return ID of the customer, 0 if the route is empty.
+     */
+    public int first(int r) {
+        return first[r];
+    }
+
+    /**
+     * Returns last customer of a route.
+     *
+     * @param r The route.
+     * @return ID of the customer, 0 if the route is empty.
+     */
+    public int last(int r) {
+        return last[r];
+    }
+
+    /**
+     * Returns number of customers of a route.
+     *
+     * @param r The route.
+     * @return The number.
+     */
+    public int count(int r) {
+        return count[r];
+    }
+
+    /**
+     * Returns load of a route.
+     *
+     * @param r The route.
+     * @return The load.
+     */
+    public double load(int r) {
+        return load[r];
+    }
+
+    /**
+     * Returns cost of a route.
+     *
+     * @param r The route.
+     * @return The cost.
+     */
+    public double cost(int r) {
+        return cost[r];
+    }
+
+    /**
+     * Returns total cost of all routes.
+     *
+     * @return The cost.
+     */
+    public double cost() {
+        return this.total;
+    }
+
+    /**
+     * Returns capacity of the car.
+     *
+     * @return The capacity.
+     */
+    public double capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns next stop after a customer.
+     *
+     * @param node ID of the customer.
+     * @return ID of the stop, 0 for the depot.
+     */
+    public int succ(int node) {
+        return succ[node];
+    }
+
+    /**
+     * Returns previous stop before a customer.
+     *
+     * @param node ID of the customer.
+     * @return ID of the stop, 0 for the depot.
+     */
+    public int pred(int node) {
+        return pred[node];
+    }
+
+    /**
+     * Returns route of a node.
+     *
+     * @param node ID of the node.
+     * @return The route, -1 for the depot and nodes outside the solution.
+     */
+    public int route(int node) {
+        return node == 0 ? -1 : route[node];
+    }
+
+    /**
+     * Returns position of a customer in its route, starting at 0.
+     *
+     * @param node ID of the customer.
+     * @return The position.
+     */
+    public int position(int node) {
+        return position[node];
+    }
+
+    /**
+     * Returns load of a route from the depot up to and including a customer.
+     *
+     * @param node ID of the customer.
+     * @return The load.
+     */
+    public double prefixLoad(int node) {
+        return prefix_load[node];
+    }
+
+    /**
+     * Returns cost of a route from the depot up to a customer.
+     *
+     * @param node ID of the customer.
+     * @return The cost.
+     */
+    public double prefixCost(int node) {
+        return prefix_cost[node];
+    }
+
+    /**
+     * Returns load of consecutive customers from ... to of one route.
+     *
+     * @param from First customer.
+     * @param to Last customer, not before the first one.
+     * @return The load.
+     */
+    public double segmentLoad(int from, int to) {
+        return prefix_load[to] - prefix_load[from] + demands[from];
+    }
+
+    /**
+     * Returns cost of the path between two customers of one route.
+     *
+     * @param from First customer.
+     * @param to Last customer, not before the first one.
+     * @return The cost.
+     */
+    public double segmentCost(int from, int to) {
+        return prefix_cost[to] - prefix_cost[from];
+    }
+
+    /**
+     * Returns true if a route still fits on the car after removing and adding load.
+     *
+     * @param r The route.
+     * @param removed Load that leaves the route.
+     * @param added Load that joins the route.
+     * @return The boolean.
+     */
+    public boolean fits(int r, double removed, double added) {
+        return load[r] - removed + added <= capacity;
+    }
+
+    /**
+     * Returns true if a customer fits on the car of a route.
+     *
+     * @param r The route.
+     * @param node ID of the customer.
+     * @return The boolean.
+     */
+    public boolean fits(int r, int node) {
+        return load[r] + demands[node] <= capacity;
+    }
+
+    /**
+     * Returns customers of a route.
+     *
+     * @param r The route.
+     * @return New array.
+     */
+    public int[] customers(int r) {
+        int[] result = new int[count[r]];
+        int i = 0;
+        for (int node = first[r]; node != 0; node = succ[node]) {
+            result[i++] = node;
+        }
+        return result;
+    }
+
+    /**
+     * Returns routes, each starting and ending at the depot. Empty routes are left out.
+     *
+     * @return The routes.
+     */
+    public List<Integer> toList() {
+        List<Integer> result = new ArrayList<>();
+        result.add(0);
+        for (int r = 0; r < routes; r++) {
+            if (count[r] > 0) {
+                for (int node = first[r]; node != 0; node = succ[node]) {
+                    result.add(node);
+                }
+                result.add(0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all customers route after route, without zeros.
+     *
+     * @return The permutation.
+     */
+    public List<Integer> permutation() {
+        List<Integer> result = toList();
+        result.removeIf(node -> node == 0);
+        return result;
+    }
+}
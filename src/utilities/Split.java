@@ -0,0 +1,212 @@
+package utilities;
+
+import procedures.grapher.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Split class.
+ *
+ * Cuts a giant tour, a permutation of all customers, into routes of the car in the
+ * cheapest way that keeps the order (Prins' Split). The best cost of serving the
+ * first j customers is p[j] = min over i of p[i] + c(i, j), where c(i, j) is the cost
+ * of one route serving customers i + 1 ... j. With prefix sums of demands and of
+ * distances along the tour, c(i, j) = key(i) + C[j] + d(t[j], 0), so the best i for j
+ * is the one with the smallest key(i) among those whose route to j still fits on the
+ * car. Older i stop fitting first, so candidates are kept in a deque of increasing
+ * keys, which gives the optimal partition in O(n) instead of O(n^2) or the greedy
+ * cut of permutationToPath().
+ *
+ * Each object owns its buffers and must not be shared between threads.
+ */
+public class Split {
+
+    /** Shortest path distances. */
+    private final DistanceMatrix dists;
+
+    /** Demand of each node. */
+    private final double[] demands;
+
+    /** Capacity of the car. */
+    private final double capacity;
+
+    /** Customers of the last tour, tour[1] ... tour[n]. */
+    private int[] tour = new int[1];
+
+    /** Demand of the first i customers. */
+    private double[] load = new double[1];
+
+    /** Distance along the tour from its first customer to customer i. */
+    private double[] along = new double[1];
+
+    /** Best cost of serving the first i customers. */
+    private double[] best = new double[1];
+
+    /** Customers served before the last route of best[i]. */
+    private int[] pred = new int[1];
+
+    /** Deque of route starts, from head to tail. */
+    private int[] deque = new int[1];
+
+    /** Number of customers of the last tour. */
+    private int n;
+
+    /**
+     * Constructor for Split object.
+     *
+     * @param dists Shortest path distances.
+     * @param demands Demand of each node.
+     * @param capacity Capacity of the car.
+     */
+    public Split(DistanceMatrix dists, double[] demands, double capacity) {
+        this.dists = dists;
+        this.demands = demands;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Builds a Split for a graph.
+     *
+     * @param graph Graph object, for demands.
+     * @param dists Shortest path distances.
+     * @param capacity Capacity of the car.
+     * @return The split.
+     */
+    public static Split of(Graph graph, DistanceMatrix dists, double capacity) {
+        double[] demands = new double[graph.size()];
+        for (int i = 0; i < demands.length; i++) {
+            demands[i] = graph.csr().demand(i);
+        }
+        return new Split(dists, demands, capacity);
+    }
+
+    /**
+     * Splits a giant tour into routes. Zeros in the tour are ignored.
+     *
+     * @param permutation The customers.
+     * @return Cost of the cheapest routes that keep the order of the tour.
+     */
+    public double split(List<Integer> permutation) {
+        ensure(permutation.size());
+        n = 0;
+        for (int node : permutation) {
+            if (node != 0) {
+                tour[++n] = node;
+            }
+        }
+        return split();
+    }
+
+    /**
+     * Splits a giant tour into routes. Zeros in the tour are ignored.
+     *
+     * @param permutation The customers.
+     * @return Cost of the cheapest routes that keep the order of the tour.
+     */
+    public double split(IntList permutation) {
+        ensure(permutation.size());
+        n = 0;
+        for (int i = 0; i < permutation.size(); i++) {
+            int node = permutation.get(i);
+            if (node != 0) {
+                tour[++n] = node;
+            }
+        }
+        return split();
+    }
+
+    /**
+     * Grows the buffers for a tour.
+     *
+     * @param size Number of customers.
+     */
+    private void ensure(int size) {
+        if (tour.length <= size) {
+            tour = new int[size + 1];
+            load = new double[size + 1];
+            along = new double[size + 1];
+            best = new double[size + 1];
+            pred = new int[size + 1];
+            deque = new int[size + 1];
+        }
+    }
+
+    /**
+     * Splits the tour in the buffer.
+     *
+     * @return The cost.
+     */
+    private double split() {
+        for (int i = 1; i <= n; i++) {
+            if (demands[tour[i]] > capacity) {
+                throw new IllegalArgumentException("Demand of node " + tour[i] + " exceeds the capacity.");
+            }
+            load[i] = load[i - 1] + demands[tour[i]];
+            along[i] = i == 1 ? 0 : along[i - 1] + dists.distance(tour[i - 1], tour[i]);
+        }
+        best[0] = 0;
+        int head = 0;
+        int tail = 0;
+        deque[tail++] = 0;
+        for (int j = 1; j <= n; j++) {
+            while (load[j] - load[deque[head]] > capacity) {
+                head++;
+            }
+            int i = deque[head];
+            best[j] = key(i) + along[j] + dists.distance(tour[j], 0);
+            pred[j] = i;
+            if (j < n) {
+                double key = key(j);
+                while (tail > head && key(deque[tail - 1]) >= key) {
+                    tail--;
+                }
+                deque[tail++] = j;
+            }
+        }
+        return best[n];
+    }
+
+    /**
+     * Returns the part of the cost of a route after customer i that does not depend
+     * on its last customer.
+     *
+     * @param i Number of customers served before the route.
+     * @return The key.
+     */
+    private double key(int i) {
+        return best[i] + dists.distance(0, tour[i + 1]) - along[i + 1];
+    }
+
+    /**
+     * Returns cost of the last split.
+     *
+     * @return The cost.
+     */
+    public double cost() {
+        return best[n];
+    }
+
+    /**
+     * Returns routes of the last split, each starting and ending at the depot.
+     *
+     * @return The routes.
+     */
+    public List<Integer> routes() {
+        IntList ends = new IntList();
+        for (int j = n; j > 0; j = pred[j]) {
+            ends.add(j);
+        }
+        List<Integer> result = new ArrayList<>(n + ends.size() + 1);
+        result.add(0);
+        int start = 1;
+        for (int r = ends.size() - 1; r >= 0; r--) {
+            for (int i = start; i <= ends.get(r); i++) {
+                result.add(tour[i]);
+            }
+            result.add(0);
+            start = ends.get(r) + 1;
+        }
+        return result;
+    }
+}
@@ -12,7 +12,24 @@ import java.util.Random;
  */
 public class Utilities {
 
-    private final Random r = new Random();
+    private final Random r;
+
+    /**
+     * Utilities constructor with an unpredictable random stream.
+     */
+    public Utilities() {
+        this.r = new Random();
+    }
+
+    /**
+     * Utilities constructor with a reproducible random stream, so that parallel
+     * workers can each use their own.
+     *
+     * @param seed Seed of the random stream.
+     */
+    public Utilities(long seed) {
+        this.r = new Random(seed);
+    }
 
     /**
      * Sigmoid function.
@@ -32,7 +49,7 @@ public class Utilities {
      * @return Random double in range.
      */
     public double randomDouble(double l, double u) {
-        return (l + Math.random()* (u - l));
+        return (l + r.nextDouble() * (u - l));
     }
 
     /**